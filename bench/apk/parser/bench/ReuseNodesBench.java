@@ -0,0 +1,134 @@
+package apk.parser.bench;
+
+import apk.parser.ApkParser;
+import apk.parser.parser.BinaryXmlParser;
+import apk.parser.parser.ResourceTableParser;
+import apk.parser.parser.XmlStreamer;
+import apk.parser.struct.AndroidConstants;
+import apk.parser.struct.resource.ResourceTable;
+import apk.parser.struct.xml.Attribute;
+import apk.parser.struct.xml.Attributes;
+import apk.parser.struct.xml.XmlCData;
+import apk.parser.struct.xml.XmlNamespaceEndTag;
+import apk.parser.struct.xml.XmlNamespaceStartTag;
+import apk.parser.struct.xml.XmlNodeEndTag;
+import apk.parser.struct.xml.XmlNodeStartTag;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * Allocation harness for BinaryXmlParser node reuse mode: streams one binary xml of an apk with reuse off
+ * and on, and prints the bytes allocated and the time for one parse. Needs a jvm with
+ * com.sun.management.ThreadMXBean, as HotSpot.
+ * <pre>
+ * javac -cp build/classes -d build/bench bench/apk/parser/bench/ReuseNodesBench.java
+ * java -cp build/classes:build/bench apk.parser.bench.ReuseNodesBench app.apk [xmlPath] [rounds]
+ * </pre>
+ *
+ * @author dongliu
+ */
+public class ReuseNodesBench {
+
+    private static final int WARMUP_ROUNDS = 2000;
+
+    // keeps results reachable, so reading is not eliminated
+    private static int sink;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: ReuseNodesBench app.apk [xmlPath] [rounds]");
+            return;
+        }
+        String xmlPath = args.length > 1 ? args[1] : AndroidConstants.MANIFEST_FILE;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+
+        ByteBuffer xmlBuffer;
+        ResourceTable resourceTable = null;
+        ApkParser apkParser = new ApkParser(args[0]);
+        try {
+            xmlBuffer = apkParser.getFileBuffer(xmlPath);
+            if (xmlBuffer == null) {
+                System.err.println("no " + xmlPath + " in apk");
+                return;
+            }
+            ByteBuffer resourceBuffer = apkParser.getFileBuffer(AndroidConstants.RESOURCE_FILE);
+            if (resourceBuffer != null) {
+                ResourceTableParser resourceTableParser = new ResourceTableParser(resourceBuffer);
+                resourceTableParser.parse();
+                resourceTable = resourceTableParser.getResourceTable();
+            }
+        } finally {
+            apkParser.close();
+        }
+
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (boolean reuseNodes : new boolean[]{false, true}) {
+            for (int r = 0; r < WARMUP_ROUNDS; r++) {
+                parse(xmlBuffer, resourceTable, reuseNodes);
+            }
+            long allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+            long begin = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                parse(xmlBuffer, resourceTable, reuseNodes);
+            }
+            long elapsed = System.nanoTime() - begin;
+            allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocated;
+            System.out.printf("reuseNodes=%-5s %10d bytes/parse %10.1f us/parse%n", reuseNodes,
+                    allocated / rounds, elapsed / 1000.0 / rounds);
+        }
+        System.out.println("sink:" + sink);
+    }
+
+    private static void parse(ByteBuffer xmlBuffer, ResourceTable resourceTable, boolean reuseNodes) {
+        BinaryXmlParser parser = new BinaryXmlParser(xmlBuffer.duplicate(), resourceTable);
+        parser.setReuseNodes(reuseNodes);
+        parser.setXmlStreamer(new ReadingStreamer());
+        parser.parse();
+    }
+
+    /**
+     * reads tag names and attribute values, as a typical streamer does
+     */
+    private static class ReadingStreamer implements XmlStreamer {
+
+        @Override
+        public int onStartTag(XmlNodeStartTag xmlNodeStartTag) {
+            int h = xmlNodeStartTag.getName().hashCode();
+            Attributes attributes = xmlNodeStartTag.getAttributes();
+            if (attributes != null) {
+                for (Attribute attribute : attributes.value()) {
+                    if (attribute == null) {
+                        continue;
+                    }
+                    String value = attribute.getValue();
+                    h += attribute.getName().hashCode() + (value == null ? 0 : value.length());
+                }
+            }
+            sink += h;
+            return CONTINUE;
+        }
+
+        @Override
+        public int onEndTag(XmlNodeEndTag xmlNodeEndTag) {
+            return CONTINUE;
+        }
+
+        @Override
+        public int onCData(XmlCData xmlCData) {
+            return CONTINUE;
+        }
+
+        @Override
+        public int onNamespaceStart(XmlNamespaceStartTag tag) {
+            return CONTINUE;
+        }
+
+        @Override
+        public int onNamespaceEnd(XmlNamespaceEndTag tag) {
+            return CONTINUE;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package apk.parser.bench;
+
+import apk.parser.utils.Buffers;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * Timing harness for string pool decoding: Buffers.readString / readUTF8String (the "bulk" cases) against
+ * the char by char and copy-then-decode loops they replaced. Strings are decoded from heap and direct buffers.
+ * <pre>
+ * javac -cp build/classes -d build/bench bench/apk/parser/bench/StringDecodeBench.java
+ * java -cp build/classes:build/bench apk.parser.bench.StringDecodeBench [stringCount] [stringLength] [case]
+ * </pre>
+ * Prints the average time to decode one string for each case. Cases share call sites, so for comparable
+ * numbers run each case in its own jvm by giving a part of its name, such as "utf-16 bulk, heap".
+ *
+ * @author dongliu
+ */
+public class StringDecodeBench {
+
+    private static final Charset charsetUTF16LE = Charset.forName("UTF-16LE");
+    private static final Charset charsetUTF8 = Charset.forName("UTF-8");
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+
+    // keeps results reachable, so decoding is not eliminated
+    private static int sink;
+
+    // run only cases whose name contains this, null for all
+    private static String filter;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int length = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+        filter = args.length > 2 ? args[2] : null;
+
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        String str = sb.toString();
+        byte[] utf16 = str.getBytes(charsetUTF16LE);
+        byte[] utf8 = str.getBytes(charsetUTF8);
+
+        for (boolean direct : new boolean[]{false, true}) {
+            final ByteBuffer utf16Buffer = fill(utf16, count, direct);
+            final ByteBuffer utf8Buffer = fill(utf8, count, direct);
+            final int strLen = length;
+            final int bytesLen = utf8.length;
+            String kind = direct ? "direct" : "heap";
+
+            run("utf-16 char by char, " + kind, count, new Decoder() {
+                @Override
+                public String decode(int i) {
+                    ByteBuffer b = utf16Buffer;
+                    b.position(i * strLen * 2);
+                    StringBuilder sb = new StringBuilder(strLen);
+                    for (int j = 0; j < strLen; j++) {
+                        sb.append(b.getChar());
+                    }
+                    return sb.toString();
+                }
+            });
+            run("utf-16 bulk, " + kind, count, new Decoder() {
+                @Override
+                public String decode(int i) {
+                    utf16Buffer.position(i * strLen * 2);
+                    return Buffers.readString(utf16Buffer, strLen);
+                }
+            });
+            run("utf-8 copy then decode, " + kind, count, new Decoder() {
+                @Override
+                public String decode(int i) {
+                    utf8Buffer.position(i * bytesLen);
+                    return new String(Buffers.readBytes(utf8Buffer, bytesLen), charsetUTF8);
+                }
+            });
+            run("utf-8 bulk, " + kind, count, new Decoder() {
+                @Override
+                public String decode(int i) {
+                    utf8Buffer.position(i * bytesLen);
+                    return Buffers.readUTF8String(utf8Buffer, bytesLen);
+                }
+            });
+        }
+        System.out.println("sink:" + sink);
+    }
+
+    private static ByteBuffer fill(byte[] data, int count, boolean direct) {
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(data.length * count)
+                : ByteBuffer.allocate(data.length * count);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < count; i++) {
+            buffer.put(data);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void run(String name, int count, Decoder decoder) {
+        if (filter != null && !name.contains(filter)) {
+            return;
+        }
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            round(count, decoder);
+        }
+        long begin = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            round(count, decoder);
+        }
+        long elapsed = System.nanoTime() - begin;
+        System.out.printf("%-32s %8.1f ns/string%n", name, (double) elapsed / ROUNDS / count);
+    }
+
+    private static void round(int count, Decoder decoder) {
+        int h = 0;
+        for (int i = 0; i < count; i++) {
+            h += decoder.decode(i).hashCode();
+        }
+        sink += h;
+    }
+
+    private interface Decoder {
+        String decode(int i);
+    }
+}
@@ -5,10 +5,16 @@ import apk.parser.parser.XmlStreamer;
 import apk.parser.parser.ApkMetaTranslator;
 import apk.parser.parser.XmlTranslator;
 import apk.parser.parser.BinaryXmlParser;
+import apk.parser.parser.BinaryXmlPullParser;
 import apk.parser.parser.DexParser;
 import apk.parser.parser.CompositeXmlStreamer;
 import apk.parser.parser.ResourceTableParser;
+import apk.parser.parser.XmlPathQuery;
+import apk.parser.parser.XmlQueryStreamer;
+import apk.parser.parser.XmlStreamerFactory;
+import apk.parser.bean.ApkArtifact;
 import apk.parser.bean.ApkMeta;
+import apk.parser.bean.ApkParseResult;
 import apk.parser.bean.DexClass;
 import apk.parser.bean.CertificateMeta;
 import apk.parser.bean.Icon;
@@ -16,34 +22,67 @@ import apk.parser.bean.ApkSignStatus;
 import apk.parser.exception.ParserException;
 import apk.parser.struct.AndroidConstants;
 import apk.parser.struct.resource.ResourceTable;
+import apk.parser.utils.StringInterner;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.security.cert.CertificateException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Common Apk Parser methods.
- * This Class is not thread-safe
+ * This Class is thread-safe. Every artifact(manifest, resource table, dex classes, certificates)
+ * is parsed only once, callers wait only for the artifact they asked for.
+ * Sub classes should make getFileData / getFileBuffer / getCertificateData safe for concurrent calls.
  *
  * @author Liu Dong
  */
 public abstract class AbstractApkParser implements Closeable {
-    private DexClass[] dexClasses;
-    private ResourceTable resourceTable;
+    private volatile DexClass[] dexClasses;
+    private volatile ResourceTable resourceTable;
 
-    private String manifestXml;
-    private ApkMeta apkMeta;
-    private Set<Locale> locales;
-    private List<CertificateMeta> certificateMetaList;
+    private volatile String manifestXml;
+    private volatile ApkMeta apkMeta;
+    private volatile Set<Locale> locales;
+    private volatile List<CertificateMeta> certificateMetaList;
+
+    // one lock for each artifact. manifest parse may acquire resourceTableLock while holding manifestLock,
+    // never the reverse.
+    private final Object manifestLock = new Object();
+    private final Object resourceTableLock = new Object();
+    private final Object dexLock = new Object();
+    private final Object certificateLock = new Object();
 
     private static final Locale DEFAULT_LOCALE = Locale.US;
 
     /**
      * default use empty locale
      */
-    private Locale preferredLocale = DEFAULT_LOCALE;
+    private volatile Locale preferredLocale = DEFAULT_LOCALE;
+
+    /**
+     * if get apk meta without parsing the whole resource table
+     */
+    private volatile boolean manifestOnly;
+
+    /**
+     * if not null, parsed strings are interned by it
+     */
+    private volatile StringInterner stringInterner;
+
+    /**
+     * if not keep decoded strings of resource table global string pool
+     */
+    private volatile boolean rawResourceStrings;
 
     /**
      * return decoded AndroidManifest.xml
@@ -51,10 +90,40 @@ public abstract class AbstractApkParser implements Closeable {
      * @return decoded AndroidManifest.xml
      */
     public String getManifestXml() throws IOException {
-        if (this.manifestXml == null) {
-            parseManifestXml();
+        String manifestXml = this.manifestXml;
+        if (manifestXml == null) {
+            synchronized (manifestLock) {
+                if (this.manifestXml == null) {
+                    parseManifestXml();
+                }
+                manifestXml = this.manifestXml;
+            }
         }
-        return this.manifestXml;
+        return manifestXml;
+    }
+
+    /**
+     * write decoded AndroidManifest.xml to the Appendable, such as a Writer. The text is written as parsed,
+     * and not kept by this parser; if the manifest xml has been got before, the kept text is written.
+     */
+    public void getManifestXml(Appendable out) throws IOException {
+        String manifestXml = this.manifestXml;
+        if (manifestXml != null) {
+            out.append(manifestXml);
+            return;
+        }
+        if (!transBinaryXml(AndroidConstants.MANIFEST_FILE, out)) {
+            throw new ParserException("Manifest file not found");
+        }
+    }
+
+    /**
+     * write decoded AndroidManifest.xml to the channel as utf-8. The channel is not closed.
+     */
+    public void getManifestXml(WritableByteChannel channel) throws IOException {
+        Writer writer = Channels.newWriter(channel, "UTF-8");
+        getManifestXml(writer);
+        writer.flush();
     }
 
     /**
@@ -63,10 +132,27 @@ public abstract class AbstractApkParser implements Closeable {
      * @return decoded AndroidManifest.xml
      */
     public ApkMeta getApkMeta() throws IOException {
-        if (this.apkMeta == null) {
-            parseApkMeta();
+        return getApkMeta(manifestOnly);
+    }
+
+    /**
+     * @param metaOnly parse manifest for apkMeta only, without building the xml text
+     */
+    private ApkMeta getApkMeta(boolean metaOnly) throws IOException {
+        ApkMeta apkMeta = this.apkMeta;
+        if (apkMeta == null) {
+            synchronized (manifestLock) {
+                if (this.apkMeta == null) {
+                    if (metaOnly) {
+                        parseApkMetaOnly();
+                    } else {
+                        parseManifestXml();
+                    }
+                }
+                apkMeta = this.apkMeta;
+            }
         }
-        return this.apkMeta;
+        return apkMeta;
     }
 
     /**
@@ -76,10 +162,16 @@ public abstract class AbstractApkParser implements Closeable {
      * @throws IOException
      */
     public Set<Locale> getLocales() throws IOException {
-        if (this.locales == null) {
-            parseResourceTable();
+        Set<Locale> locales = this.locales;
+        if (locales == null) {
+            synchronized (resourceTableLock) {
+                if (this.locales == null) {
+                    parseResourceTable();
+                }
+                locales = this.locales;
+            }
         }
-        return this.locales;
+        return locales;
     }
 
     /**
@@ -87,10 +179,16 @@ public abstract class AbstractApkParser implements Closeable {
      */
     public List<CertificateMeta> getCertificateMetaList() throws IOException,
             CertificateException {
-        if (this.certificateMetaList == null) {
-            parseCertificate();
+        List<CertificateMeta> certificateMetaList = this.certificateMetaList;
+        if (certificateMetaList == null) {
+            synchronized (certificateLock) {
+                if (this.certificateMetaList == null) {
+                    parseCertificate();
+                }
+                certificateMetaList = this.certificateMetaList;
+            }
         }
-        return this.certificateMetaList;
+        return certificateMetaList;
     }
 
     protected abstract byte[] getCertificateData() throws IOException;
@@ -107,32 +205,43 @@ public abstract class AbstractApkParser implements Closeable {
     }
 
     /**
-     * parse manifest.xml, get apkMeta.
+     * parse manifest.xml, get manifestXml as xml text, and apkMeta if not got yet. Called with manifestLock held.
      *
      * @throws IOException
      */
-    private void parseApkMeta() throws IOException {
-        if (this.manifestXml == null) {
-            parseManifestXml();
+    private void parseManifestXml() throws IOException {
+        XmlTranslator xmlTranslator = new XmlTranslator();
+        // apkMeta got in manifest-only mode is kept, not parsed again
+        ApkMetaTranslator translator = this.apkMeta == null ? new ApkMetaTranslator(stringInterner) : null;
+        XmlStreamer xmlStreamer = translator == null ? xmlTranslator
+                : new CompositeXmlStreamer(xmlTranslator, translator);
+
+        ByteBuffer buffer = getFileBuffer(AndroidConstants.MANIFEST_FILE);
+        if (buffer == null) {
+            throw new ParserException("Manifest file not found");
+        }
+        transBinaryXml(buffer, xmlStreamer, preferredLocale);
+        this.manifestXml = xmlTranslator.getXml();
+        if (translator != null) {
+            this.apkMeta = translator.getApkMeta();
         }
     }
 
     /**
-     * parse manifest.xml, get manifestXml as xml text.
-     *
-     * @throws IOException
+     * parse manifest.xml to get apkMeta only, no xml text is built. Resource types are read from the lazy
+     * resource table only when manifest attributes reference them. Called with manifestLock held.
      */
-    private void parseManifestXml() throws IOException {
-        XmlTranslator xmlTranslator = new XmlTranslator();
-        ApkMetaTranslator translator = new ApkMetaTranslator();
-        XmlStreamer xmlStreamer = new CompositeXmlStreamer(xmlTranslator, translator);
-
-        byte[] data = getFileData(AndroidConstants.MANIFEST_FILE);
-        if (data == null) {
+    private void parseApkMetaOnly() throws IOException {
+        ByteBuffer buffer = getFileBuffer(AndroidConstants.MANIFEST_FILE);
+        if (buffer == null) {
             throw new ParserException("Manifest file not found");
         }
-        transBinaryXml(data, xmlStreamer);
-        this.manifestXml = xmlTranslator.getXml();
+        ApkMetaTranslator translator = new ApkMetaTranslator(stringInterner);
+        BinaryXmlParser binaryXmlParser = new BinaryXmlParser(buffer, getResourceTable());
+        binaryXmlParser.setStringInterner(stringInterner);
+        binaryXmlParser.setLocale(preferredLocale);
+        binaryXmlParser.setXmlStreamer(translator);
+        binaryXmlParser.parse();
         this.apkMeta = translator.getApkMeta();
     }
 
@@ -141,6 +250,20 @@ public abstract class AbstractApkParser implements Closeable {
      */
     public abstract byte[] getFileData(String path) throws IOException;
 
+    /**
+     * read file in apk as buffer. Sub classes may return a view of the apk data instead of a copy,
+     * the buffer content should not be modified.
+     *
+     * @return the buffer, null if file not exists
+     */
+    public ByteBuffer getFileBuffer(String path) throws IOException {
+        byte[] data = getFileData(path);
+        if (data == null) {
+            return null;
+        }
+        return ByteBuffer.wrap(data);
+    }
+
 
     /**
      * trans binary xml file to text xml file.
@@ -150,27 +273,213 @@ public abstract class AbstractApkParser implements Closeable {
      * @throws IOException
      */
     public String transBinaryXml(String path) throws IOException {
-        byte[] data = getFileData(path);
-        if (data == null) {
+        ByteBuffer buffer = getFileBuffer(path);
+        if (buffer == null) {
             return null;
         }
-        if (this.resourceTable == null) {
-            parseResourceTable();
-        }
 
         XmlTranslator xmlTranslator = new XmlTranslator();
-        transBinaryXml(data, xmlTranslator);
+        transBinaryXml(buffer, xmlTranslator, preferredLocale);
         return xmlTranslator.getXml();
     }
 
-    private void transBinaryXml(byte[] data, XmlStreamer xmlStreamer) throws IOException {
-        if (this.resourceTable == null) {
-            parseResourceTable();
+    /**
+     * trans binary xml file to text xml, and write to the Appendable as parsed. The Appendable is not flushed.
+     *
+     * @param path the xml file path in apk file
+     * @return false if file not exists
+     * @throws IOException if read file or write to the Appendable failed
+     */
+    public boolean transBinaryXml(String path, Appendable out) throws IOException {
+        ByteBuffer buffer = getFileBuffer(path);
+        if (buffer == null) {
+            return false;
         }
+        try {
+            transBinaryXml(buffer, new XmlTranslator(out), preferredLocale);
+        } catch (ParserException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        return true;
+    }
 
-        ByteBuffer buffer = ByteBuffer.wrap(data);
+    /**
+     * trans binary xml file to text xml, and write to the channel as utf-8. The channel is not closed.
+     *
+     * @param path the xml file path in apk file
+     * @return false if file not exists
+     * @throws IOException if read file or write to the channel failed
+     */
+    public boolean transBinaryXml(String path, WritableByteChannel channel) throws IOException {
+        Writer writer = Channels.newWriter(channel, "UTF-8");
+        boolean found = transBinaryXml(path, writer);
+        writer.flush();
+        return found;
+    }
+
+    /**
+     * trans many binary xml files to text xml concurrently with the executor.
+     *
+     * @see #transBinaryXml(Collection, XmlStreamerFactory, Executor)
+     */
+    public Map<String, String> transBinaryXml(Collection<String> paths, Executor executor)
+            throws IOException, InterruptedException {
+        Map<String, XmlStreamer> streamers = transBinaryXml(paths, new XmlStreamerFactory() {
+            @Override
+            public XmlStreamer create(String path) {
+                return new XmlTranslator();
+            }
+        }, executor);
+        Map<String, String> result = new LinkedHashMap<String, String>(streamers.size() * 4 / 3 + 1);
+        for (Map.Entry<String, XmlStreamer> entry : streamers.entrySet()) {
+            result.put(entry.getKey(), ((XmlTranslator) entry.getValue()).getXml());
+        }
+        return result;
+    }
+
+    /**
+     * parse many binary xml files(such as res/layout files) concurrently with the executor, and wait for all of
+     * them to finish. Each file is read and parsed by one task, with a streamer created by the factory;
+     * the resource table is parsed once before tasks are submitted, and shared by all of them.
+     *
+     * @param paths the xml file paths in apk file
+     * @return the streamers after parse, by path in the order of paths. files not exist are not included
+     * @throws IOException if read or parse one file failed, tasks not started yet are cancelled
+     * @throws RejectedExecutionException if the executor rejects a file, tasks submitted are cancelled
+     */
+    public Map<String, XmlStreamer> transBinaryXml(Collection<String> paths, final XmlStreamerFactory factory,
+                                                   Executor executor) throws IOException, InterruptedException {
+        final ResourceTable resourceTable = getResourceTable();
+        final Locale locale = preferredLocale;
+        Map<String, FutureTask<XmlStreamer>> tasks = new LinkedHashMap<String, FutureTask<XmlStreamer>>();
+        for (final String path : paths) {
+            if (tasks.containsKey(path)) {
+                continue;
+            }
+            FutureTask<XmlStreamer> task = new FutureTask<XmlStreamer>(new Callable<XmlStreamer>() {
+                @Override
+                public XmlStreamer call() throws Exception {
+                    ByteBuffer buffer = getFileBuffer(path);
+                    if (buffer == null) {
+                        return null;
+                    }
+                    XmlStreamer xmlStreamer = factory.create(path);
+                    transBinaryXml(buffer, xmlStreamer, resourceTable, locale);
+                    return xmlStreamer;
+                }
+            });
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                for (FutureTask<XmlStreamer> submitted : tasks.values()) {
+                    submitted.cancel(false);
+                }
+                throw e;
+            }
+            tasks.put(path, task);
+        }
+
+        Map<String, XmlStreamer> result = new LinkedHashMap<String, XmlStreamer>(tasks.size() * 4 / 3 + 1);
+        try {
+            for (Map.Entry<String, FutureTask<XmlStreamer>> entry : tasks.entrySet()) {
+                XmlStreamer xmlStreamer;
+                try {
+                    xmlStreamer = entry.getValue().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new ParserException("Parse " + entry.getKey() + " failed", cause);
+                }
+                if (xmlStreamer != null) {
+                    result.put(entry.getKey(), xmlStreamer);
+                }
+            }
+        } finally {
+            if (result.size() < tasks.size()) {
+                for (FutureTask<XmlStreamer> task : tasks.values()) {
+                    task.cancel(false);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * get a pull parser of binary xml file, resource references are resolved with preferred locale.
+     *
+     * @param path the xml file path in apk file
+     * @return the parser. null if file not exists
+     * @throws IOException
+     * @throws ParserException if the file is not a binary xml, such as a plain text xml
+     */
+    public BinaryXmlPullParser getXmlPullParser(String path) throws IOException {
+        ByteBuffer buffer = getFileBuffer(path);
+        if (buffer == null) {
+            return null;
+        }
+        BinaryXmlPullParser parser = new BinaryXmlPullParser(buffer, getResourceTable());
+        parser.setLocale(preferredLocale);
+        return parser;
+    }
+
+    /**
+     * evaluate path queries on binary xml file, in one pass. No xml text is built.
+     *
+     * @param path    the xml file path in apk file
+     * @param queries the queries, see {@link XmlPathQuery}
+     * @return the values selected by each query, in the order of queries. null if file not exists
+     * @throws IOException
+     */
+    public List<List<String>> queryBinaryXml(String path, XmlPathQuery... queries) throws IOException {
+        ByteBuffer buffer = getFileBuffer(path);
+        if (buffer == null) {
+            return null;
+        }
+        XmlQueryStreamer xmlQueryStreamer = new XmlQueryStreamer(queries);
+        transBinaryXml(buffer, xmlQueryStreamer, preferredLocale);
+        List<List<String>> results = new ArrayList<List<String>>(queries.length);
+        for (int i = 0; i < queries.length; i++) {
+            results.add(xmlQueryStreamer.getResults(i));
+        }
+        return results;
+    }
+
+    /**
+     * evaluate a path query on manifest file, such as
+     * <code>/manifest/application/activity[@exported='true']/@name</code>
+     *
+     * @return the values selected, in document order
+     * @throws IOException
+     */
+    public List<String> queryManifest(String query) throws IOException {
+        List<List<String>> results = queryBinaryXml(AndroidConstants.MANIFEST_FILE, XmlPathQuery.compile(query));
+        if (results == null) {
+            throw new ParserException("Manifest file not found");
+        }
+        return results.get(0);
+    }
+
+    private void transBinaryXml(ByteBuffer buffer, XmlStreamer xmlStreamer, Locale locale)
+            throws IOException {
+        transBinaryXml(buffer, xmlStreamer, getResourceTable(), locale);
+    }
+
+    private void transBinaryXml(ByteBuffer buffer, XmlStreamer xmlStreamer, ResourceTable resourceTable,
+                                Locale locale) {
         BinaryXmlParser binaryXmlParser = new BinaryXmlParser(buffer, resourceTable);
-        binaryXmlParser.setLocale(preferredLocale);
+        binaryXmlParser.setStringInterner(stringInterner);
+        binaryXmlParser.setLocale(locale);
         binaryXmlParser.setXmlStreamer(xmlStreamer);
         binaryXmlParser.parse();
     }
@@ -194,43 +503,151 @@ public abstract class AbstractApkParser implements Closeable {
      * get class infos form dex file. currently only class name
      */
     public DexClass[] getDexClasses() throws IOException {
-        if (this.dexClasses == null) {
-            parseDexFile();
+        DexClass[] dexClasses = this.dexClasses;
+        if (dexClasses == null) {
+            synchronized (dexLock) {
+                if (this.dexClasses == null) {
+                    parseDexFile();
+                }
+                dexClasses = this.dexClasses;
+            }
         }
-        return this.dexClasses;
+        return dexClasses;
     }
 
     private void parseDexFile() throws IOException {
-        byte[] data = getFileData(AndroidConstants.DEX_FILE);
-        if (data == null) {
+        ByteBuffer buffer = getFileBuffer(AndroidConstants.DEX_FILE);
+        if (buffer == null) {
             throw new ParserException("Dex file not found");
         }
-        ByteBuffer buffer = ByteBuffer.wrap(data);
         DexParser dexParser = new DexParser(buffer);
         dexParser.parse();
         this.dexClasses = dexParser.getDexClasses();
     }
 
     /**
-     * parse resource table.
+     * get the resource table, parse it if not parsed yet.
+     */
+    private ResourceTable getResourceTable() throws IOException {
+        ResourceTable resourceTable = this.resourceTable;
+        if (resourceTable == null) {
+            synchronized (resourceTableLock) {
+                if (this.resourceTable == null) {
+                    parseResourceTable();
+                }
+                resourceTable = this.resourceTable;
+            }
+        }
+        return resourceTable;
+    }
+
+    /**
+     * parse resource table. should be called with resourceTableLock held.
      */
     private void parseResourceTable() throws IOException {
-        byte[] data = getFileData(AndroidConstants.RESOURCE_FILE);
-        if (data == null) {
+        ByteBuffer buffer = getFileBuffer(AndroidConstants.RESOURCE_FILE);
+        if (buffer == null) {
             // if no resource entry has been found, we assume it is not needed by this APK
-            this.resourceTable = new ResourceTable();
             this.locales = Collections.emptySet();
+            this.resourceTable = new ResourceTable();
             return;
         }
 
-        this.resourceTable = new ResourceTable();
-        this.locales = Collections.emptySet();
-
-        ByteBuffer buffer = ByteBuffer.wrap(data);
         ResourceTableParser resourceTableParser = new ResourceTableParser(buffer);
+        resourceTableParser.setStringInterner(stringInterner);
+        resourceTableParser.setRawStringPool(rawResourceStrings);
+        // most lookups touch a few types only
+        resourceTableParser.setLazyTypes(true);
         resourceTableParser.parse();
-        this.resourceTable = resourceTableParser.getResourceTable();
         this.locales = resourceTableParser.getLocales();
+        this.resourceTable = resourceTableParser.getResourceTable();
+    }
+
+    /**
+     * parse manifest, resources, dex and certificates concurrently with the executor.
+     *
+     * @see #parseAll(Executor, Set)
+     */
+    public ApkParseResult parseAll(Executor executor) throws InterruptedException {
+        return parseAll(executor, EnumSet.allOf(ApkArtifact.class));
+    }
+
+    /**
+     * parse the apk parts concurrently with the executor, and wait for all of them to finish.
+     * The parts are independent except manifest and apkMeta, which only wait for the resource table.
+     * If both manifest and apkMeta are asked, apkMeta is got with the manifest in one parse.
+     * Parsed parts are also cached by this parser as by the single part getters.
+     *
+     * @param artifacts the parts to parse
+     * @return the result holder. failure of one part does not stop the others, see ApkParseResult.getError
+     * @throws RejectedExecutionException if the executor rejects a part, parts submitted are cancelled
+     */
+    public ApkParseResult parseAll(Executor executor, Set<ApkArtifact> artifacts)
+            throws InterruptedException {
+        final ApkParseResult result = new ApkParseResult();
+        // manifest is submitted last, as it will block on the resource table
+        ApkArtifact[] order = {ApkArtifact.resources, ApkArtifact.dex, ApkArtifact.certificates,
+                ApkArtifact.manifest, ApkArtifact.apkMeta};
+        Map<ApkArtifact, FutureTask<Void>> tasks = new EnumMap<ApkArtifact, FutureTask<Void>>(ApkArtifact.class);
+        for (final ApkArtifact artifact : order) {
+            if (!artifacts.contains(artifact)) {
+                continue;
+            }
+            if (artifact == ApkArtifact.apkMeta && artifacts.contains(ApkArtifact.manifest)) {
+                // set by the manifest part
+                continue;
+            }
+            FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    parseArtifact(artifact, result);
+                    return null;
+                }
+            });
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                for (FutureTask<Void> submitted : tasks.values()) {
+                    submitted.cancel(false);
+                }
+                throw e;
+            }
+            tasks.put(artifact, task);
+        }
+
+        for (Map.Entry<ApkArtifact, FutureTask<Void>> entry : tasks.entrySet()) {
+            try {
+                entry.getValue().get();
+            } catch (ExecutionException e) {
+                result.setError(entry.getKey(), e.getCause());
+            }
+        }
+        return result;
+    }
+
+    private void parseArtifact(ApkArtifact artifact, ApkParseResult result) throws IOException,
+            CertificateException {
+        switch (artifact) {
+            case manifest:
+                // xml text and apkMeta are got in one parse
+                result.setManifestXml(getManifestXml());
+                result.setApkMeta(getApkMeta());
+                break;
+            case apkMeta:
+                result.setApkMeta(getApkMeta(true));
+                break;
+            case resources:
+                result.setLocales(getLocales());
+                break;
+            case dex:
+                result.setDexClasses(getDexClasses());
+                break;
+            case certificates:
+                result.setCertificateMetaList(getCertificateMetaList());
+                break;
+            default:
+                throw new ParserException("Unknown artifact:" + artifact);
+        }
     }
 
     /**
@@ -247,6 +664,45 @@ public abstract class AbstractApkParser implements Closeable {
         this.certificateMetaList = null;
     }
 
+    public boolean isManifestOnly() {
+        return manifestOnly;
+    }
+
+    /**
+     * If set, getApkMeta parses the manifest for ApkMeta alone, without building the manifest xml text.
+     * The resource table is the same lazy one used by other methods, only the types referenced are read.
+     * getManifestXml and other methods are not affected. Default false.
+     */
+    public void setManifestOnly(boolean manifestOnly) {
+        this.manifestOnly = manifestOnly;
+    }
+
+    public StringInterner getStringInterner() {
+        return stringInterner;
+    }
+
+    /**
+     * If set, xml tag and attribute names, resource type and package names, and strings kept in ApkMeta are
+     * interned by it. Resource values and keys are not. Share one interner,
+     * such as ConcurrentStringInterner, between parsers to keep only one copy of strings repeated across apks.
+     * Should be set before parsing.
+     */
+    public void setStringInterner(StringInterner stringInterner) {
+        this.stringInterner = stringInterner;
+    }
+
+    public boolean isRawResourceStrings() {
+        return rawResourceStrings;
+    }
+
+    /**
+     * If set, string values of resource table are decoded when used and not kept, for apks with very large
+     * resource string pools. Should be set before parsing. Default false.
+     */
+    public void setRawResourceStrings(boolean rawResourceStrings) {
+        this.rawResourceStrings = rawResourceStrings;
+    }
+
     public Locale getPreferredLocale() {
         return preferredLocale;
     }
@@ -257,10 +713,12 @@ public abstract class AbstractApkParser implements Closeable {
      * The default value is from os default locale setting.
      */
     public void setPreferredLocale(Locale preferredLocale) {
-        if (!Objects.equals(this.preferredLocale, preferredLocale)) {
-            this.preferredLocale = preferredLocale;
-            this.manifestXml = null;
-            this.apkMeta = null;
+        synchronized (manifestLock) {
+            if (!Objects.equals(this.preferredLocale, preferredLocale)) {
+                this.preferredLocale = preferredLocale;
+                this.manifestXml = null;
+                this.apkMeta = null;
+            }
         }
     }
 }
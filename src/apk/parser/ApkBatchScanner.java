@@ -0,0 +1,221 @@
+package apk.parser;
+
+import apk.parser.bean.ApkArtifact;
+import apk.parser.bean.ApkParseResult;
+import apk.parser.bean.ScanStatistics;
+import apk.parser.utils.StringInterner;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Scan many apk files in parallel.
+ * Each apk is parsed by one worker of the pool, with its own ApkParser which is closed as soon as
+ * the apk is done. Results are passed to the listener when every apk completes, not in input order.
+ *
+ * @author dongliu
+ */
+public class ApkBatchScanner implements Closeable {
+
+    // run the parts of one apk in the worker thread, the pool is used across apks
+    private static final Executor CURRENT_THREAD = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private int maxPending;
+    private Set<ApkArtifact> artifacts = EnumSet.of(ApkArtifact.apkMeta);
+    private Locale preferredLocale;
+    private StringInterner stringInterner;
+
+    /**
+     * use a fork-join pool with parallelism of available processors
+     */
+    public ApkBatchScanner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * use a fork-join pool with the parallelism. the pool is shutdown when scanner is closed.
+     */
+    public ApkBatchScanner(int parallelism) {
+        this.executor = new ForkJoinPool(parallelism);
+        this.ownExecutor = true;
+        this.maxPending = parallelism * 4;
+    }
+
+    /**
+     * use the executor given, such as a shared ForkJoinPool. the executor is not shutdown by the scanner.
+     */
+    public ApkBatchScanner(ExecutorService executor) {
+        this.executor = executor;
+        this.ownExecutor = false;
+        int parallelism = executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.maxPending = parallelism * 4;
+    }
+
+    /**
+     * scan all apk files under the directory, recursively.
+     */
+    public ScanStatistics scan(File dir, ApkScanListener listener) throws InterruptedException {
+        List<File> apkFiles = new ArrayList<File>();
+        listApkFiles(dir, apkFiles);
+        return scan(apkFiles.iterator(), listener);
+    }
+
+    /**
+     * scan the apk files, return after all of them are done.
+     * The iterator is consumed by the calling thread, at most maxPending apks are queued at a time.
+     */
+    public ScanStatistics scan(Iterator<File> apkFiles, final ApkScanListener listener)
+            throws InterruptedException {
+        final int permitCount = maxPending;
+        final Semaphore permits = new Semaphore(permitCount);
+        final ScanStatistics statistics = new ScanStatistics();
+        statistics.start();
+        try {
+            while (apkFiles.hasNext()) {
+                final File apkFile = apkFiles.next();
+                permits.acquire();
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                scanApk(apkFile, listener, statistics);
+                            } finally {
+                                permits.release();
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+        } finally {
+            // wait for submitted apks
+            permits.acquireUninterruptibly(permitCount);
+            permits.release(permitCount);
+            statistics.stop();
+        }
+        return statistics;
+    }
+
+    private void scanApk(File apkFile, ApkScanListener listener, ScanStatistics statistics) {
+        long size = apkFile.length();
+        ApkParseResult result;
+        ApkParser apkParser = null;
+        try {
+            apkParser = new ApkParser(apkFile);
+            if (preferredLocale != null) {
+                apkParser.setPreferredLocale(preferredLocale);
+            }
+            apkParser.setStringInterner(stringInterner);
+            result = apkParser.parseAll(CURRENT_THREAD, artifacts);
+        } catch (Exception e) {
+            closeQuietly(apkParser);
+            statistics.record(size, true);
+            listener.onError(apkFile, e);
+            return;
+        }
+        // the apk is fully parsed, a failure to close the file does not change the result
+        closeQuietly(apkParser);
+        statistics.record(size, !result.isSuccess());
+        listener.onResult(apkFile, result);
+    }
+
+    private static void closeQuietly(ApkParser apkParser) {
+        if (apkParser == null) {
+            return;
+        }
+        try {
+            apkParser.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    private void listApkFiles(File dir, List<File> apkFiles) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                listApkFiles(file, apkFiles);
+            } else if (file.getName().toLowerCase().endsWith(".apk")) {
+                apkFiles.add(file);
+            }
+        }
+    }
+
+    public Set<ApkArtifact> getArtifacts() {
+        return artifacts;
+    }
+
+    /**
+     * the parts to parse of every apk. default only apkMeta, without the manifest xml text
+     */
+    public void setArtifacts(Set<ApkArtifact> artifacts) {
+        this.artifacts = EnumSet.copyOf(artifacts);
+    }
+
+    public Locale getPreferredLocale() {
+        return preferredLocale;
+    }
+
+    public void setPreferredLocale(Locale preferredLocale) {
+        this.preferredLocale = preferredLocale;
+    }
+
+    public StringInterner getStringInterner() {
+        return stringInterner;
+    }
+
+    /**
+     * the interner shared by parsers of all apks, should be thread-safe. default null, not intern strings
+     */
+    public void setStringInterner(StringInterner stringInterner) {
+        this.stringInterner = stringInterner;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    /**
+     * the max count of apks submitted to pool but not finished. default 4 * parallelism
+     *
+     * @throws IllegalArgumentException if maxPending is less than 1
+     */
+    public void setMaxPending(int maxPending) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("maxPending should be positive:" + maxPending);
+        }
+        this.maxPending = maxPending;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+}
@@ -16,7 +16,7 @@ import java.util.zip.ZipFile;
 
 /**
  * ApkParser and result holder.
- * This class is not thread-safe.
+ * This class is thread-safe.
  *
  * @author dongliu
  */
@@ -52,7 +52,7 @@ public class ApkParser extends AbstractApkParser implements Closeable {
         if (entry == null) {
             return null;
         }
-        return Utils.toByteArray(zf.getInputStream(entry));
+        return Utils.toByteArray(zf.getInputStream(entry), entry.getSize());
     }
 
     @Override
@@ -63,7 +63,7 @@ public class ApkParser extends AbstractApkParser implements Closeable {
         }
 
         InputStream inputStream = zf.getInputStream(entry);
-        return Utils.toByteArray(inputStream);
+        return Utils.toByteArray(inputStream, entry.getSize());
     }
 
 
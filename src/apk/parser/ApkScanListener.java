@@ -0,0 +1,25 @@
+package apk.parser;
+
+import apk.parser.bean.ApkParseResult;
+
+import java.io.File;
+
+/**
+ * callback interface for ApkBatchScanner.
+ * Methods are called from the scanner's worker threads, as soon as one apk is done,
+ * so implementations should be thread-safe.
+ *
+ * @author dongliu
+ */
+public interface ApkScanListener {
+
+    /**
+     * the apk is parsed. Some parts may still have failed, see ApkParseResult.getError
+     */
+    void onResult(File apkFile, ApkParseResult result);
+
+    /**
+     * the apk can not be opened or parsed at all.
+     */
+    void onError(File apkFile, Throwable error);
+}
@@ -1,61 +1,82 @@
 package apk.parser;
 
 import apk.parser.bean.ApkSignStatus;
-import apk.parser.utils.Utils;
+import apk.parser.struct.zip.CentralDirectoryEntry;
+import apk.parser.utils.ZipArchive;
 
-import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Parse apk file from byte array.
- * This class is not thread-safe
+ * The zip central directory is read once, then entries are read by random access.
+ * This class is thread-safe
  *
  * @author Liu Dong
  */
 public class ByteArrayApkParser extends AbstractApkParser implements Closeable {
 
     private byte[] apkData;
+    private volatile ZipArchive zipArchive;
 
     public ByteArrayApkParser(byte[] apkData) {
         this.apkData = apkData;
     }
 
+    private ZipArchive getZipArchive() {
+        ZipArchive zipArchive = this.zipArchive;
+        if (zipArchive == null) {
+            synchronized (this) {
+                if (this.apkData == null) {
+                    throw new IllegalStateException("Apk parser is closed");
+                }
+                if (this.zipArchive == null) {
+                    this.zipArchive = new ZipArchive(ByteBuffer.wrap(apkData));
+                }
+                zipArchive = this.zipArchive;
+            }
+        }
+        return zipArchive;
+    }
+
     @Override
     protected byte[] getCertificateData() throws IOException {
-        try {
-            InputStream in = new ByteArrayInputStream(apkData);
-            ZipInputStream zis = new ZipInputStream(in);
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                if (entry.getName().toUpperCase().endsWith(".RSA") || entry.getName().toUpperCase().endsWith(".DSA")) {
-                    return Utils.toByteArray(zis);
-                }
+        ZipArchive archive = getZipArchive();
+        for (CentralDirectoryEntry entry : archive.getEntries()) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String name = entry.getName().toUpperCase();
+            if (name.endsWith(".RSA") || name.endsWith(".DSA")) {
+                return archive.getEntryData(entry);
             }
-        } catch (Exception e){
-            
         }
         return null;
     }
 
     @Override
     public byte[] getFileData(String path) throws IOException {
-        try {
-            InputStream in = new ByteArrayInputStream(apkData);
-            ZipInputStream zis = new ZipInputStream(in);
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                if (path.equals(entry.getName())) {
-                    return Utils.toByteArray(zis);
-                }
-            }
-        } catch (Exception e){
-            
+        ZipArchive archive = getZipArchive();
+        CentralDirectoryEntry entry = archive.getEntry(path);
+        if (entry == null) {
+            return null;
         }
-        return null;
+        return archive.getEntryData(entry);
+    }
+
+    /**
+     * For stored entry, the buffer is a slice of the apk data, not a copy. It is writable, callers should not
+     * modify it, as the content is shared with other readers.
+     */
+    @Override
+    public ByteBuffer getFileBuffer(String path) throws IOException {
+        ZipArchive archive = getZipArchive();
+        CentralDirectoryEntry entry = archive.getEntry(path);
+        if (entry == null) {
+            return null;
+        }
+        return archive.getEntryBuffer(entry);
     }
 
     @Override
@@ -67,5 +88,6 @@ public class ByteArrayApkParser extends AbstractApkParser implements Closeable {
     public void close() throws IOException {
         super.close();
         this.apkData = null;
+        this.zipArchive = null;
     }
 }
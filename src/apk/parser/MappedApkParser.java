@@ -0,0 +1,141 @@
+package apk.parser;
+
+import apk.parser.bean.ApkSignStatus;
+import apk.parser.exception.ParserException;
+import apk.parser.struct.zip.CentralDirectoryEntry;
+import apk.parser.utils.ZipArchive;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Parse apk file via memory mapping.
+ * The zip central directory is read once, stored entries(resources.arsc for most apks)
+ * are served as slices of the mapped file, without copy. Only deflated entries are inflated.
+ * This class is thread-safe.
+ *
+ * @author dongliu
+ */
+public class MappedApkParser extends AbstractApkParser implements Closeable {
+
+    private final File apkFile;
+    private volatile ZipArchive zipArchive;
+
+    public MappedApkParser(File apkFile) throws IOException {
+        this.apkFile = apkFile;
+        RandomAccessFile file = new RandomAccessFile(apkFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ParserException("Apk file too large to map:" + channel.size());
+            }
+            // the mapping keeps valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            this.zipArchive = new ZipArchive(buffer);
+        } finally {
+            file.close();
+        }
+    }
+
+    public MappedApkParser(String filePath) throws IOException {
+        this(new File(filePath));
+    }
+
+    private ZipArchive getZipArchive() {
+        ZipArchive zipArchive = this.zipArchive;
+        if (zipArchive == null) {
+            throw new IllegalStateException("Apk parser is closed");
+        }
+        return zipArchive;
+    }
+
+    @Override
+    protected byte[] getCertificateData() throws IOException {
+        ZipArchive zipArchive = getZipArchive();
+        for (CentralDirectoryEntry entry : zipArchive.getEntries()) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String name = entry.getName().toUpperCase();
+            if (name.endsWith(".RSA") || name.endsWith(".DSA")) {
+                return zipArchive.getEntryData(entry);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public byte[] getFileData(String path) throws IOException {
+        ZipArchive zipArchive = getZipArchive();
+        CentralDirectoryEntry entry = zipArchive.getEntry(path);
+        if (entry == null) {
+            return null;
+        }
+        return zipArchive.getEntryData(entry);
+    }
+
+    /**
+     * For stored entry, the buffer is a slice of the mapped file, not a copy. The file is mapped read-only,
+     * so writes to it throw ReadOnlyBufferException.
+     */
+    @Override
+    public ByteBuffer getFileBuffer(String path) throws IOException {
+        ZipArchive zipArchive = getZipArchive();
+        CentralDirectoryEntry entry = zipArchive.getEntry(path);
+        if (entry == null) {
+            return null;
+        }
+        return zipArchive.getEntryBuffer(entry);
+    }
+
+    @Override
+    public ApkSignStatus verifyApk() throws IOException {
+        if (getZipArchive().getEntry("META-INF/MANIFEST.MF") == null) {
+            // apk is not signed;
+            return ApkSignStatus.notSigned;
+        }
+
+        JarFile jarFile = new JarFile(this.apkFile);
+        try {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            byte[] buffer = new byte[8192];
+            while (entries.hasMoreElements()) {
+                JarEntry e = entries.nextElement();
+                if (e.isDirectory()) {
+                    continue;
+                }
+                try {
+                    InputStream in = jarFile.getInputStream(e);
+                    try {
+                        // Read in each jar entry. A security exception will be thrown if a signature/digest check fails.
+                        while (in.read(buffer, 0, buffer.length) != -1) {
+                            // Don't care
+                        }
+                    } finally {
+                        in.close();
+                    }
+                } catch (SecurityException se) {
+                    return ApkSignStatus.incorrect;
+                }
+            }
+        } finally {
+            jarFile.close();
+        }
+        return ApkSignStatus.signed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        // the mapping is released when the buffer is garbage collected
+        this.zipArchive = null;
+    }
+}
@@ -0,0 +1,29 @@
+package apk.parser.bean;
+
+/**
+ * The parts of apk that can be parsed independently.
+ *
+ * @author dongliu
+ */
+public enum ApkArtifact {
+    /**
+     * AndroidManifest.xml, as ApkMeta and xml text. depends on resources
+     */
+    manifest,
+    /**
+     * AndroidManifest.xml, as ApkMeta only, no xml text is built. depends on resources
+     */
+    apkMeta,
+    /**
+     * resources.arsc, the resource table and locales
+     */
+    resources,
+    /**
+     * classes in classes.dex
+     */
+    dex,
+    /**
+     * certificates in META-INF
+     */
+    certificates
+}
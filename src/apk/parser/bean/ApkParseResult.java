@@ -0,0 +1,87 @@
+package apk.parser.bean;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result holder for parse multi parts of one apk at once.
+ * The value of a part is null if it was not requested or its parse failed.
+ *
+ * @author dongliu
+ */
+public class ApkParseResult {
+
+    private ApkMeta apkMeta;
+    private String manifestXml;
+    private Set<Locale> locales;
+    private DexClass[] dexClasses;
+    private List<CertificateMeta> certificateMetaList;
+
+    private final Map<ApkArtifact, Throwable> errors = new EnumMap<ApkArtifact, Throwable>(ApkArtifact.class);
+
+    public ApkMeta getApkMeta() {
+        return apkMeta;
+    }
+
+    public void setApkMeta(ApkMeta apkMeta) {
+        this.apkMeta = apkMeta;
+    }
+
+    public String getManifestXml() {
+        return manifestXml;
+    }
+
+    public void setManifestXml(String manifestXml) {
+        this.manifestXml = manifestXml;
+    }
+
+    public Set<Locale> getLocales() {
+        return locales;
+    }
+
+    public void setLocales(Set<Locale> locales) {
+        this.locales = locales;
+    }
+
+    public DexClass[] getDexClasses() {
+        return dexClasses;
+    }
+
+    public void setDexClasses(DexClass[] dexClasses) {
+        this.dexClasses = dexClasses;
+    }
+
+    public List<CertificateMeta> getCertificateMetaList() {
+        return certificateMetaList;
+    }
+
+    public void setCertificateMetaList(List<CertificateMeta> certificateMetaList) {
+        this.certificateMetaList = certificateMetaList;
+    }
+
+    /**
+     * @return the exception thrown when parse the part, null if succeed or not requested
+     */
+    public Throwable getError(ApkArtifact artifact) {
+        return errors.get(artifact);
+    }
+
+    public void setError(ApkArtifact artifact, Throwable error) {
+        errors.put(artifact, error);
+    }
+
+    public Map<ApkArtifact, Throwable> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * @return true if all requested parts are parsed without error
+     */
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+}
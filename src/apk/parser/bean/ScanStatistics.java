@@ -0,0 +1,93 @@
+package apk.parser.bean;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and throughput of a batch apk scan.
+ *
+ * @author dongliu
+ */
+public class ScanStatistics {
+
+    private final AtomicLong apkCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong byteCount = new AtomicLong();
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    public void start() {
+        this.startNanos = System.nanoTime();
+        this.endNanos = 0;
+    }
+
+    public void stop() {
+        this.endNanos = System.nanoTime();
+    }
+
+    /**
+     * record one scanned apk
+     *
+     * @param size the apk file size
+     */
+    public void record(long size, boolean failed) {
+        apkCount.incrementAndGet();
+        byteCount.addAndGet(size);
+        if (failed) {
+            failedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * the apks scanned, include failed ones
+     */
+    public long getApkCount() {
+        return apkCount.get();
+    }
+
+    /**
+     * the apks that can not be parsed, or have some parts failed
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getByteCount() {
+        return byteCount.get();
+    }
+
+    /**
+     * the elapsed time in milliseconds, till now if the scan is not finished.
+     */
+    public long getElapsedMillis() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1000000;
+    }
+
+    public double getApksPerSecond() {
+        return perSecond(getApkCount());
+    }
+
+    public double getMegabytesPerSecond() {
+        return perSecond(getByteCount()) / (1024 * 1024);
+    }
+
+    private double perSecond(long count) {
+        long millis = getElapsedMillis();
+        if (millis <= 0) {
+            return 0;
+        }
+        return count * 1000.0 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanStatistics{" +
+                "apkCount=" + getApkCount() +
+                ", failedCount=" + getFailedCount() +
+                ", byteCount=" + getByteCount() +
+                ", elapsedMillis=" + getElapsedMillis() +
+                ", apksPerSecond=" + String.format("%.2f", getApksPerSecond()) +
+                ", megabytesPerSecond=" + String.format("%.2f", getMegabytesPerSecond()) +
+                '}';
+    }
+}
@@ -3,6 +3,7 @@ package apk.parser.parser;
 import apk.parser.struct.xml.XmlNamespaceEndTag;
 import apk.parser.struct.xml.XmlCData;
 import apk.parser.struct.xml.XmlNodeStartTag;
+import apk.parser.struct.xml.Attribute.AttrIds;
 import apk.parser.struct.xml.Attributes;
 import apk.parser.struct.xml.XmlNodeEndTag;
 import apk.parser.struct.xml.XmlNamespaceStartTag;
@@ -10,6 +11,11 @@ import apk.parser.bean.ApkMeta;
 import apk.parser.bean.GlEsVersion;
 import apk.parser.bean.Permission;
 import apk.parser.bean.UseFeature;
+import apk.parser.utils.StringInterner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * trans binary xml to text
@@ -18,101 +24,197 @@ import apk.parser.bean.UseFeature;
  */
 public class ApkMetaTranslator implements XmlStreamer {
 
+    // codes of tags used
+    private static final int TAG_OTHER = 0;
+    private static final int TAG_MANIFEST = 1;
+    private static final int TAG_APPLICATION = 2;
+    private static final int TAG_USES_SDK = 3;
+    private static final int TAG_SUPPORTS_SCREENS = 4;
+    private static final int TAG_USES_FEATURE = 5;
+    private static final int TAG_USES_PERMISSION = 6;
+    private static final int TAG_PERMISSION = 7;
+    // components of application, their children(intent filters, meta-data) are not used
+    private static final int TAG_COMPONENT = 8;
+
+    private static final Map<String, Integer> tagCodes = new HashMap<String, Integer>();
+
+    static {
+        tagCodes.put("manifest", TAG_MANIFEST);
+        tagCodes.put("application", TAG_APPLICATION);
+        tagCodes.put("uses-sdk", TAG_USES_SDK);
+        tagCodes.put("supports-screens", TAG_SUPPORTS_SCREENS);
+        tagCodes.put("uses-feature", TAG_USES_FEATURE);
+        tagCodes.put("uses-permission", TAG_USES_PERMISSION);
+        tagCodes.put("permission", TAG_PERMISSION);
+        tagCodes.put("activity", TAG_COMPONENT);
+        tagCodes.put("activity-alias", TAG_COMPONENT);
+        tagCodes.put("service", TAG_COMPONENT);
+        tagCodes.put("receiver", TAG_COMPONENT);
+        tagCodes.put("provider", TAG_COMPONENT);
+    }
+
+    // tag codes by tag name index in string pool
+    private int[] tagCodeCache = new int[64];
+
     private String[] tagStack = new String[100];
     private int depth = 0;
     private ApkMeta apkMeta = new ApkMeta();
+    // if not null, string values kept in apk meta are interned
+    private final StringInterner stringInterner;
+
+    public ApkMetaTranslator() {
+        this(null);
+    }
+
+    public ApkMetaTranslator(StringInterner stringInterner) {
+        this.stringInterner = stringInterner;
+    }
 
     @Override
-    public void onStartTag(XmlNodeStartTag xmlNodeStartTag) {
-        Attributes attributes = xmlNodeStartTag.getAttributes();
-        String tagName = xmlNodeStartTag.getName();
-        if ("application".equals(tagName)) {
-            apkMeta.setLabel(attributes.get("label"));
-            apkMeta.setIcon(attributes.get("icon"));
-        }
-        if ("manifest".equals(tagName)) {
-            apkMeta.setPackageName(attributes.get("package"));
-            apkMeta.setVersionName(attributes.get("versionName"));
-            apkMeta.setVersionCode(attributes.getLong("versionCode"));
-            String installLocation = attributes.get("installLocation");
-            if (installLocation != null) {
-                apkMeta.setInstallLocation(installLocation);
-            }
-        }
-        if ("uses-sdk".equals(tagName)) {
-            apkMeta.setMinSdkVersion(attributes.get("minSdkVersion"));
-            apkMeta.setTargetSdkVersion(attributes.get("targetSdkVersion"));
-            apkMeta.setMaxSdkVersion(attributes.get("maxSdkVersion"));
+    public int onStartTag(XmlNodeStartTag xmlNodeStartTag) {
+        tagStack[depth++] = xmlNodeStartTag.getName();
+        int tagCode = tagCode(xmlNodeStartTag);
+        if (tagCode == TAG_OTHER) {
+            // not read attributes of tags not used. tags used are matched at any depth, such as uses-feature
+            // in feature-group, so the children are still walked
+            return CONTINUE;
         }
-        if ("supports-screens".equals(tagName)) {
-            apkMeta.setAnyDensity(attributes.getBoolean("anyDensity", false));
-            apkMeta.setSmallScreens(attributes.getBoolean("smallScreens", false));
-            apkMeta.setNormalScreens(attributes.getBoolean("normalScreens", false));
-            apkMeta.setLargeScreens(attributes.getBoolean("largeScreens", false));
+        if (tagCode == TAG_COMPONENT) {
+            // the bodies of components hold no tag used, skip them without decoding
+            return SKIP_SUBTREE;
         }
-        if ("uses-feature".equals(tagName)) {
-            String name = attributes.get("name");
-            boolean required = attributes.getBoolean("required", false);
-            if (name != null) {
-                UseFeature useFeature = new UseFeature();
-                useFeature.setName(name);
-                useFeature.setRequired(required);
-                apkMeta.addUseFeatures(useFeature);
-            } else {
-                Integer gl = attributes.getInt("glEsVersion");
-                if (gl != null) {
-                    int v = gl;
-                    GlEsVersion glEsVersion = new GlEsVersion();
-                    glEsVersion.setMajor(v >> 16);
-                    glEsVersion.setMinor(v & 0xffff);
-                    glEsVersion.setRequired(required);
-                    apkMeta.setGlEsVersion(glEsVersion);
+        Attributes attributes = xmlNodeStartTag.getAttributes();
+        switch (tagCode) {
+            case TAG_MANIFEST: {
+                apkMeta.setPackageName(intern(attributes.get("package")));
+                apkMeta.setVersionName(intern(attributes.get(AttrIds.VERSION_NAME, "versionName")));
+                Integer versionCode = attributes.getIntValue(AttrIds.VERSION_CODE, "versionCode");
+                apkMeta.setVersionCode(versionCode == null ? null : versionCode.longValue());
+                String installLocation = intern(attributes.get(AttrIds.INSTALL_LOCATION, "installLocation"));
+                if (installLocation != null) {
+                    apkMeta.setInstallLocation(installLocation);
                 }
+                break;
+            }
+            case TAG_APPLICATION: {
+                apkMeta.setLabel(intern(attributes.get(AttrIds.LABEL, "label")));
+                apkMeta.setIcon(intern(attributes.get(AttrIds.ICON, "icon")));
+                break;
+            }
+            case TAG_USES_SDK: {
+                apkMeta.setMinSdkVersion(intern(attributes.get(AttrIds.MIN_SDK_VERSION, "minSdkVersion")));
+                apkMeta.setTargetSdkVersion(intern(attributes.get(AttrIds.TARGET_SDK_VERSION, "targetSdkVersion")));
+                apkMeta.setMaxSdkVersion(intern(attributes.get(AttrIds.MAX_SDK_VERSION, "maxSdkVersion")));
+                break;
+            }
+            case TAG_SUPPORTS_SCREENS: {
+                apkMeta.setAnyDensity(attributes.getBooleanValue(AttrIds.ANY_DENSITY, "anyDensity", false));
+                apkMeta.setSmallScreens(attributes.getBooleanValue(AttrIds.SMALL_SCREENS, "smallScreens", false));
+                apkMeta.setNormalScreens(attributes.getBooleanValue(AttrIds.NORMAL_SCREENS, "normalScreens", false));
+                apkMeta.setLargeScreens(attributes.getBooleanValue(AttrIds.LARGE_SCREENS, "largeScreens", false));
+                break;
             }
+            case TAG_USES_FEATURE: {
+                String name = intern(attributes.get(AttrIds.NAME, "name"));
+                boolean required = attributes.getBooleanValue(AttrIds.REQUIRED, "required", false);
+                if (name != null) {
+                    UseFeature useFeature = new UseFeature();
+                    useFeature.setName(name);
+                    useFeature.setRequired(required);
+                    apkMeta.addUseFeatures(useFeature);
+                } else {
+                    Integer gl = attributes.getIntValue(AttrIds.GL_ES_VERSION, "glEsVersion");
+                    if (gl != null) {
+                        int v = gl;
+                        GlEsVersion glEsVersion = new GlEsVersion();
+                        glEsVersion.setMajor(v >> 16);
+                        glEsVersion.setMinor(v & 0xffff);
+                        glEsVersion.setRequired(required);
+                        apkMeta.setGlEsVersion(glEsVersion);
+                    }
+                }
+                break;
+            }
+            case TAG_USES_PERMISSION: {
+                apkMeta.addUsesPermission(intern(attributes.get(AttrIds.NAME, "name")));
+                break;
+            }
+            case TAG_PERMISSION: {
+                Permission permission = new Permission();
+                permission.setName(intern(attributes.get(AttrIds.NAME, "name")));
+                permission.setLabel(intern(attributes.get(AttrIds.LABEL, "label")));
+                permission.setIcon(intern(attributes.get(AttrIds.ICON, "icon")));
+                permission.setGroup(intern(attributes.get("group")));
+                permission.setDescription(intern(attributes.get(AttrIds.DESCRIPTION, "description")));
+                String protectionLevel = intern(attributes.get(AttrIds.PROTECTION_LEVEL, "protectionLevel"));
+                if (protectionLevel != null) {
+                    permission.setProtectionLevel(protectionLevel);
+                }
+                apkMeta.addPermission(permission);
+                break;
+            }
+            default:
         }
-        if ("uses-permission".equals(tagName)) {
-            apkMeta.addUsesPermission(attributes.get("name"));
+        return CONTINUE;
+    }
+
+    /**
+     * the tag code of tag, resolved from tag name once for each name index of the xml file.
+     */
+    private int tagCode(XmlNodeStartTag xmlNodeStartTag) {
+        int nameIndex = xmlNodeStartTag.getNameIndex();
+        if (nameIndex < 0) {
+            return tagCode(xmlNodeStartTag.getName());
         }
-        if ("permission".equals(tagName)) {
-            Permission permission = new Permission();
-            permission.setName(attributes.get("name"));
-            permission.setLabel(attributes.get("label"));
-            permission.setIcon(attributes.get("icon"));
-            permission.setGroup(attributes.get("group"));
-            permission.setDescription(attributes.get("description"));
-            String protectionLevel = attributes.get("android:protectionLevel");
-            if (protectionLevel != null) {
-                permission.setProtectionLevel(protectionLevel);
-            }
-            apkMeta.addPermission(permission);
+        if (nameIndex >= tagCodeCache.length) {
+            tagCodeCache = Arrays.copyOf(tagCodeCache, Math.max(nameIndex + 1, tagCodeCache.length * 2));
         }
-        tagStack[depth++] = xmlNodeStartTag.getName();
+        // cached as code + 1, 0 for not resolved
+        int code = tagCodeCache[nameIndex];
+        if (code == 0) {
+            code = tagCode(xmlNodeStartTag.getName()) + 1;
+            tagCodeCache[nameIndex] = code;
+        }
+        return code - 1;
+    }
+
+    private static int tagCode(String tagName) {
+        Integer code = tagCodes.get(tagName);
+        return code == null ? TAG_OTHER : code;
     }
 
     @Override
-    public void onEndTag(XmlNodeEndTag xmlNodeEndTag) {
+    public int onEndTag(XmlNodeEndTag xmlNodeEndTag) {
         depth--;
+        return CONTINUE;
     }
 
     @Override
-    public void onCData(XmlCData xmlCData) {
-
+    public int onCData(XmlCData xmlCData) {
+        return CONTINUE;
     }
 
     @Override
-    public void onNamespaceStart(XmlNamespaceStartTag tag) {
-
+    public int onNamespaceStart(XmlNamespaceStartTag tag) {
+        return CONTINUE;
     }
 
     @Override
-    public void onNamespaceEnd(XmlNamespaceEndTag tag) {
-
+    public int onNamespaceEnd(XmlNamespaceEndTag tag) {
+        return CONTINUE;
     }
 
     public ApkMeta getApkMeta() {
         return apkMeta;
     }
 
+    private String intern(String value) {
+        if (value == null || stringInterner == null) {
+            return value;
+        }
+        return stringInterner.intern(value);
+    }
+
     private boolean matchTagPath(String... tags) {
         // the root should always be "manifest"
         if (depth != tags.length + 1) {
@@ -11,6 +11,7 @@ import apk.parser.struct.xml.XmlHeader;
 import apk.parser.struct.xml.XmlNamespaceStartTag;
 import apk.parser.struct.xml.Attribute;
 import apk.parser.struct.ResourceEntity;
+import apk.parser.struct.ResValue;
 import apk.parser.struct.ChunkType;
 import apk.parser.struct.ChunkHeader;
 import apk.parser.struct.StringPoolHeader;
@@ -21,6 +22,7 @@ import apk.parser.exception.ParserException;
 import apk.parser.struct.resource.ResourceTable;
 import apk.parser.utils.Buffers;
 import apk.parser.utils.ParseUtils;
+import apk.parser.utils.StringInterner;
 import apk.parser.utils.Utils;
 
 import java.nio.ByteBuffer;
@@ -46,8 +48,29 @@ public class BinaryXmlParser {
     private StringPool stringPool;
     // some attribute name stored by resource id
     private String[] resourceMap;
+    // attribute resource ids, by attribute name index
+    private long[] attributeIds;
     private ByteBuffer buffer;
     private XmlStreamer xmlStreamer;
+    private StringInterner stringInterner;
+    // the pool indexes whose string has been interned
+    private boolean[] internedNames;
+    // the control returned by last callback of streamer
+    private int control = XmlStreamer.CONTINUE;
+
+    // reuse node objects, see setReuseNodes
+    private boolean reuseNodes;
+    private final XmlNodeStartTag sharedStartTag = new XmlNodeStartTag();
+    private final XmlNodeEndTag sharedEndTag = new XmlNodeEndTag();
+    private final XmlNodeHeader sharedNodeHeader = new XmlNodeHeader(0, 0, 0);
+    // reused attributes, by attribute count
+    private Attributes[] sharedAttributes = new Attributes[16];
+    private final Attribute.ValueResolver valueResolver = new Attribute.ValueResolver() {
+        @Override
+        public String resolve(Attribute attribute) {
+            return resolveValue(attribute);
+        }
+    };
     private final ResourceTable resourceTable;
     /**
      * default locale.
@@ -64,6 +87,7 @@ public class BinaryXmlParser {
      * Parse binary xml.
      */
     public void parse() {
+        control = XmlStreamer.CONTINUE;
         ChunkHeader chunkHeader = readChunkHeader();
         if (chunkHeader == null) {
             return;
@@ -89,6 +113,7 @@ public class BinaryXmlParser {
         }
         if (chunkHeader.getChunkType() == ChunkType.XML_RESOURCE_MAP) {
             long[] resourceIds = readXmlResourceMap((XmlResourceMapHeader) chunkHeader);
+            attributeIds = resourceIds;
             resourceMap = new String[resourceIds.length];
             for (int i = 0; i < resourceIds.length; i++) {
                 resourceMap[i] = Attribute.AttrIds.getString(resourceIds[i]);
@@ -104,11 +129,11 @@ public class BinaryXmlParser {
             switch (chunkHeader.getChunkType()) {
                 case ChunkType.XML_END_NAMESPACE:
                     XmlNamespaceEndTag xmlNamespaceEndTag = readXmlNamespaceEndTag();
-                    xmlStreamer.onNamespaceEnd(xmlNamespaceEndTag);
+                    control = xmlStreamer.onNamespaceEnd(xmlNamespaceEndTag);
                     break;
                 case ChunkType.XML_START_NAMESPACE:
                     XmlNamespaceStartTag namespaceStartTag = readXmlNamespaceStartTag();
-                    xmlStreamer.onNamespaceStart(namespaceStartTag);
+                    control = xmlStreamer.onNamespaceStart(namespaceStartTag);
                     break;
                 case ChunkType.XML_START_ELEMENT:
                     XmlNodeStartTag xmlNodeStartTag = readXmlNodeStartTag();
@@ -128,6 +153,15 @@ public class BinaryXmlParser {
                     }
             }
             buffer.position((int) (beginPos + chunkHeader.getBodySize()));
+            if (control == XmlStreamer.STOP) {
+                return;
+            }
+            if (control == XmlStreamer.SKIP_SUBTREE
+                    && chunkHeader.getChunkType() == ChunkType.XML_START_ELEMENT) {
+                // stop at the end tag of the element, which is still passed to streamer
+                XmlChunks.skipSubtree(buffer);
+            }
+            control = XmlStreamer.CONTINUE;
             chunkHeader = readChunkHeader();
         }
     }
@@ -149,15 +183,14 @@ public class BinaryXmlParser {
     }
 
     private XmlNodeEndTag readXmlNodeEndTag() {
-        XmlNodeEndTag xmlNodeEndTag = new XmlNodeEndTag();
+        XmlNodeEndTag xmlNodeEndTag = reuseNodes ? sharedEndTag : new XmlNodeEndTag();
         int nsRef = buffer.getInt();
         int nameRef = buffer.getInt();
-        if (nsRef > 0) {
-            xmlNodeEndTag.setNamespace(stringPool.get(nsRef));
-        }
-        xmlNodeEndTag.setName(stringPool.get(nameRef));
+        xmlNodeEndTag.setNamespace(nsRef > 0 ? getName(nsRef) : null);
+        xmlNodeEndTag.setName(getName(nameRef));
+        xmlNodeEndTag.setNameIndex(nameRef);
         if (xmlStreamer != null) {
-            xmlStreamer.onEndTag(xmlNodeEndTag);
+            control = xmlStreamer.onEndTag(xmlNodeEndTag);
         }
         return xmlNodeEndTag;
     }
@@ -165,11 +198,10 @@ public class BinaryXmlParser {
     private XmlNodeStartTag readXmlNodeStartTag() {
         int nsRef = buffer.getInt();
         int nameRef = buffer.getInt();
-        XmlNodeStartTag xmlNodeStartTag = new XmlNodeStartTag();
-        if (nsRef > 0) {
-            xmlNodeStartTag.setNamespace(stringPool.get(nsRef));
-        }
-        xmlNodeStartTag.setName(stringPool.get(nameRef));
+        XmlNodeStartTag xmlNodeStartTag = reuseNodes ? sharedStartTag : new XmlNodeStartTag();
+        xmlNodeStartTag.setNamespace(nsRef > 0 ? getName(nsRef) : null);
+        xmlNodeStartTag.setName(getName(nameRef));
+        xmlNodeStartTag.setNameIndex(nameRef);
 
         // read attributes.
         // attributeStart and attributeSize are always 20 (0x14)
@@ -181,36 +213,72 @@ public class BinaryXmlParser {
         int styleIndex = Buffers.readUShort(buffer);
 
         // read attributes
-        Attributes attributes = new Attributes(attributeCount);
+        Attributes attributes = reuseNodes ? sharedAttributes(attributeCount) : new Attributes(attributeCount);
         for (int count = 0; count < attributeCount; count++) {
-            Attribute attribute = readAttribute();
+            Attribute attribute = reuseNodes ? attributes.value()[count] : new Attribute();
+            readAttribute(attribute);
             if (xmlStreamer != null) {
-                String value = attribute.toStringValue(resourceTable, locale);
-                if (intAttributes.contains(attribute.getName()) && Utils.isNumeric(value)) {
-                    try {
-                        value = getFinalValueAsString(attribute.getName(), value);
-                    } catch (Exception ignore) {
-                    }
-                }
-                attribute.setValue(value);
+                // resolved only if the streamer asks for it
+                attribute.setValue(null);
+                attribute.setValueResolver(valueResolver);
                 attributes.set(count, attribute);
             }
         }
         xmlNodeStartTag.setAttributes(attributes);
 
         if (xmlStreamer != null) {
-            xmlStreamer.onStartTag(xmlNodeStartTag);
+            control = xmlStreamer.onStartTag(xmlNodeStartTag);
         }
 
         return xmlNodeStartTag;
     }
 
-    private static final Set<String> intAttributes = new HashSet<String>(
+    /**
+     * the reused attributes with the count, attribute objects are created once.
+     */
+    private Attributes sharedAttributes(int count) {
+        if (count >= sharedAttributes.length) {
+            sharedAttributes = Arrays.copyOf(sharedAttributes, Math.max(count + 1, sharedAttributes.length * 2));
+        }
+        Attributes attributes = sharedAttributes[count];
+        if (attributes == null) {
+            attributes = new Attributes(count);
+            for (int i = 0; i < count; i++) {
+                attributes.set(i, new Attribute());
+            }
+            sharedAttributes[count] = attributes;
+        }
+        return attributes;
+    }
+
+    /**
+     * get attribute value as string, resolve resource reference with resource table and locale.
+     * called when attribute value is first got.
+     */
+    private String resolveValue(Attribute attribute) {
+        String value;
+        if (attribute.getRawValue() != null || attribute.getTypedValue() != null) {
+            value = attribute.toStringValue(resourceTable, locale);
+        } else {
+            ResourceEntity typedValue = ParseUtils.toResourceEntity(attribute.getDataType(), attribute.getData(),
+                    stringPool);
+            value = typedValue == null ? "" : typedValue.toStringValue(resourceTable, locale);
+        }
+        if (intAttributes.contains(attribute.getName()) && Utils.isNumeric(value)) {
+            try {
+                value = getFinalValueAsString(attribute.getName(), value);
+            } catch (Exception ignore) {
+            }
+        }
+        return value;
+    }
+
+    static final Set<String> intAttributes = new HashSet<String>(
             Arrays.asList("screenOrientation", "configChanges", "windowSoftInputMode",
                     "launchMode", "installLocation", "protectionLevel"));
 
     //trans int attr value to string
-    private String getFinalValueAsString(String attributeName, String str) {
+    static String getFinalValueAsString(String attributeName, String str) {
         int value = Integer.parseInt(str);
         if ("screenOrientation".equals(attributeName)) {
             return AttributeValues.getScreenOrientation(value);
@@ -234,15 +302,14 @@ public class BinaryXmlParser {
         }
     }
 
-    private Attribute readAttribute() {
+    private void readAttribute(Attribute attribute) {
         int nsRef = buffer.getInt();
         int nameRef = buffer.getInt();
-        Attribute attribute = new Attribute();
-        if (nsRef > 0) {
-            attribute.setNamespace(stringPool.get(nsRef));
-        }
+        attribute.setNamespace(nsRef > 0 ? getName(nsRef) : null);
 
-        attribute.setName(stringPool.get(nameRef));
+        attribute.setName(getName(nameRef));
+        attribute.setResourceId(attributeIds != null && nameRef >= 0 && nameRef < attributeIds.length
+                ? attributeIds[nameRef] : 0);
         if (attribute.getName().isEmpty() && resourceMap != null && nameRef < resourceMap.length) {
             // some processed apk file make the string pool value empty, if it is a xmlmap attr.
             attribute.setName(resourceMap[nameRef]);
@@ -250,13 +317,15 @@ public class BinaryXmlParser {
         }
 
         int rawValueRef = buffer.getInt();
-        if (rawValueRef > 0) {
-            attribute.setRawValue(stringPool.get(rawValueRef));
-        }
-        ResourceEntity resValue = ParseUtils.readResValue(buffer, stringPool);
-        attribute.setTypedValue(resValue);
-
-        return attribute;
+        attribute.setRawValue(rawValueRef > 0 ? stringPool.get(rawValueRef) : null);
+        // typed value: size(2), res0(1), dataType(1), data(4)
+        Buffers.skip(buffer, 3);
+        short dataType = Buffers.readUByte(buffer);
+        int data = buffer.getInt();
+        attribute.setDataType(dataType);
+        attribute.setData(data);
+        // in reuse mode the typed value is only converted when value is resolved
+        attribute.setTypedValue(reuseNodes ? null : ParseUtils.toResourceEntity(dataType, data, stringPool));
     }
 
     private XmlNamespaceStartTag readXmlNamespaceStartTag() {
@@ -264,10 +333,10 @@ public class BinaryXmlParser {
         int uriRef = buffer.getInt();
         XmlNamespaceStartTag nameSpace = new XmlNamespaceStartTag();
         if (prefixRef > 0) {
-            nameSpace.setPrefix(stringPool.get(prefixRef));
+            nameSpace.setPrefix(getName(prefixRef));
         }
         if (uriRef > 0) {
-            nameSpace.setUri(stringPool.get(uriRef));
+            nameSpace.setUri(getName(uriRef));
         }
         return nameSpace;
     }
@@ -277,21 +346,16 @@ public class BinaryXmlParser {
         int uriRef = buffer.getInt();
         XmlNamespaceEndTag nameSpace = new XmlNamespaceEndTag();
         if (prefixRef > 0) {
-            nameSpace.setPrefix(stringPool.get(prefixRef));
+            nameSpace.setPrefix(getName(prefixRef));
         }
         if (uriRef > 0) {
-            nameSpace.setUri(stringPool.get(uriRef));
+            nameSpace.setUri(getName(uriRef));
         }
         return nameSpace;
     }
 
     private long[] readXmlResourceMap(XmlResourceMapHeader chunkHeader) {
-        int count = chunkHeader.getBodySize() / 4;
-        long[] resourceIds = new long[count];
-        for (int i = 0; i < count; i++) {
-            resourceIds[i] = Buffers.readUInt(buffer);
-        }
-        return resourceIds;
+        return XmlChunks.readResourceIds(buffer, chunkHeader.getBodySize());
     }
 
     private ChunkHeader readChunkHeader() {
@@ -309,14 +373,7 @@ public class BinaryXmlParser {
             case ChunkType.XML:
                 return new XmlHeader(chunkType, headerSize, chunkSize);
             case ChunkType.STRING_POOL:
-                StringPoolHeader stringPoolHeader = new StringPoolHeader(chunkType, headerSize, chunkSize);
-                stringPoolHeader.setStringCount(Buffers.readUInt(buffer));
-                stringPoolHeader.setStyleCount(Buffers.readUInt(buffer));
-                stringPoolHeader.setFlags(Buffers.readUInt(buffer));
-                stringPoolHeader.setStringsStart(Buffers.readUInt(buffer));
-                stringPoolHeader.setStylesStart(Buffers.readUInt(buffer));
-                buffer.position((int) (begin + headerSize));
-                return stringPoolHeader;
+                return XmlChunks.readStringPoolHeader(buffer, (int) begin);
             case ChunkType.XML_RESOURCE_MAP:
                 buffer.position((int) (begin + headerSize));
                 return new XmlResourceMapHeader(chunkType, headerSize, chunkSize);
@@ -325,7 +382,15 @@ public class BinaryXmlParser {
             case ChunkType.XML_START_ELEMENT:
             case ChunkType.XML_END_ELEMENT:
             case ChunkType.XML_CDATA:
-                XmlNodeHeader header = new XmlNodeHeader(chunkType, headerSize, chunkSize);
+                XmlNodeHeader header;
+                if (reuseNodes) {
+                    header = sharedNodeHeader;
+                    header.setChunkType(chunkType);
+                    header.setHeaderSize(headerSize);
+                    header.setChunkSize(chunkSize);
+                } else {
+                    header = new XmlNodeHeader(chunkType, headerSize, chunkSize);
+                }
                 header.setLineNum((int) Buffers.readUInt(buffer));
                 header.setCommentRef((int) Buffers.readUInt(buffer));
                 buffer.position((int) (begin + headerSize));
@@ -355,4 +420,49 @@ public class BinaryXmlParser {
     public void setXmlStreamer(XmlStreamer xmlStreamer) {
         this.xmlStreamer = xmlStreamer;
     }
+
+    public boolean isReuseNodes() {
+        return reuseNodes;
+    }
+
+    /**
+     * If set, one start tag, one end tag, one node chunk header and the attributes of each attribute count are
+     * reused for all nodes, and typed values are not converted to ResourceEntity. Node objects passed to
+     * XmlStreamer are only valid in the callback, and Attribute.getTypedValue returns null.
+     * For streaming large count of xml files without creating objects for every node. Default false.
+     */
+    public void setReuseNodes(boolean reuseNodes) {
+        this.reuseNodes = reuseNodes;
+    }
+
+    /**
+     * get a tag, attribute or namespace name from string pool, interned once for each pool index if interner set
+     */
+    private String getName(int ref) {
+        String name = stringPool.get(ref);
+        if (stringInterner == null || name == null) {
+            return name;
+        }
+        if (internedNames == null) {
+            internedNames = new boolean[stringPool.size()];
+        }
+        if (!internedNames[ref]) {
+            name = stringInterner.intern(name);
+            stringPool.set(ref, name);
+            internedNames[ref] = true;
+        }
+        return name;
+    }
+
+    public StringInterner getStringInterner() {
+        return stringInterner;
+    }
+
+    /**
+     * if set, tag, attribute and namespace names of the xml are interned. Attribute values and text are not,
+     * they seldom repeat across files.
+     */
+    public void setStringInterner(StringInterner stringInterner) {
+        this.stringInterner = stringInterner;
+    }
 }
@@ -0,0 +1,303 @@
+package apk.parser.parser;
+
+import apk.parser.bean.Locales;
+import apk.parser.exception.ParserException;
+import apk.parser.struct.ChunkType;
+import apk.parser.struct.ResourceEntity;
+import apk.parser.struct.StringPool;
+import apk.parser.struct.StringPoolHeader;
+import apk.parser.struct.resource.ResourceTable;
+import apk.parser.struct.xml.Attribute;
+import apk.parser.utils.ParseUtils;
+import apk.parser.utils.Utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+
+/**
+ * Pull parser for android binary xml.
+ * The parser only keeps the position of current node chunk; names and values are read from the chunk
+ * when asked for, no object is created per node. Subtrees can be skipped by chunk size, without reading them.
+ * <pre>
+ * int event;
+ * while ((event = parser.next()) != BinaryXmlPullParser.END_DOCUMENT) {
+ *     if (event == BinaryXmlPullParser.START_TAG) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @author dongliu
+ */
+public class BinaryXmlPullParser {
+
+    public static final int START_DOCUMENT = 0;
+    public static final int END_DOCUMENT = 1;
+    public static final int START_TAG = 2;
+    public static final int END_TAG = 3;
+    public static final int TEXT = 4;
+
+    private final ByteBuffer buffer;
+    private final ResourceTable resourceTable;
+    private StringPool stringPool;
+    // attribute resource ids, by attribute name index
+    private long[] resourceIds;
+    private Locale locale = Locales.any;
+
+    private int eventType = START_DOCUMENT;
+    private int depth;
+    // position of the node body(after node header) of current event
+    private int nodePos;
+    private int attributeCount;
+
+    public BinaryXmlPullParser(ByteBuffer buffer, ResourceTable resourceTable) {
+        this.buffer = buffer.duplicate();
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.resourceTable = resourceTable;
+        readHeaders();
+    }
+
+    /**
+     * read xml header, string pool and resource map. stop at the first node chunk.
+     *
+     * @throws ParserException if the data is not a binary xml, such as a plain text xml
+     */
+    private void readHeaders() {
+        if (buffer.remaining() < XmlChunks.CHUNK_HEADER_SIZE) {
+            eventType = END_DOCUMENT;
+            return;
+        }
+        int begin = buffer.position();
+        if (XmlChunks.chunkType(buffer, begin) != ChunkType.XML) {
+            if (XmlChunks.isPlainXml(buffer, begin)) {
+                throw new ParserException("Not a binary xml file, may be a plain text xml");
+            }
+            throw new ParserException("Not a binary xml file, unexpected chunk type:"
+                    + XmlChunks.chunkType(buffer, begin));
+        }
+        buffer.position(begin + XmlChunks.headerSize(buffer, begin));
+
+        while (buffer.remaining() >= XmlChunks.CHUNK_HEADER_SIZE) {
+            int chunkBegin = buffer.position();
+            int chunkType = XmlChunks.chunkType(buffer, chunkBegin);
+            int headerSize = XmlChunks.headerSize(buffer, chunkBegin);
+            long chunkSize = XmlChunks.chunkSize(buffer, chunkBegin);
+            if (chunkType == ChunkType.STRING_POOL) {
+                StringPoolHeader stringPoolHeader = XmlChunks.readStringPoolHeader(buffer, chunkBegin);
+                stringPool = ParseUtils.readStringPool(buffer, stringPoolHeader);
+            } else if (chunkType == ChunkType.XML_RESOURCE_MAP) {
+                buffer.position(chunkBegin + headerSize);
+                resourceIds = XmlChunks.readResourceIds(buffer, (int) (chunkSize - headerSize));
+            } else {
+                // node chunks
+                buffer.position(chunkBegin);
+                break;
+            }
+            buffer.position((int) (chunkBegin + chunkSize));
+        }
+        if (stringPool == null) {
+            throw new ParserException("String pool not found in binary xml");
+        }
+    }
+
+    /**
+     * move to next event, namespace chunks are passed.
+     *
+     * @return the event type: START_TAG, END_TAG, TEXT or END_DOCUMENT
+     */
+    public int next() {
+        if (eventType == END_TAG) {
+            depth--;
+        }
+        attributeCount = 0;
+        while (buffer.remaining() >= XmlChunks.CHUNK_HEADER_SIZE) {
+            int chunkBegin = buffer.position();
+            int chunkType = XmlChunks.chunkType(buffer, chunkBegin);
+            buffer.position((int) (chunkBegin + XmlChunks.chunkSize(buffer, chunkBegin)));
+            nodePos = chunkBegin + XmlChunks.headerSize(buffer, chunkBegin);
+            switch (chunkType) {
+                case ChunkType.XML_START_ELEMENT:
+                    depth++;
+                    attributeCount = buffer.getShort(nodePos + XmlChunks.ATTRIBUTE_COUNT_OFFSET) & 0xffff;
+                    return eventType = START_TAG;
+                case ChunkType.XML_END_ELEMENT:
+                    return eventType = END_TAG;
+                case ChunkType.XML_CDATA:
+                    return eventType = TEXT;
+                default:
+                    if (chunkType < ChunkType.XML_FIRST_CHUNK || chunkType > ChunkType.XML_LAST_CHUNK) {
+                        throw new ParserException("Unexpected chunk type:" + chunkType);
+                    }
+            }
+        }
+        return eventType = END_DOCUMENT;
+    }
+
+    /**
+     * skip the children of current start tag, by chunk size. after this the current event is the end tag
+     * of the element.
+     */
+    public void skipSubtree() {
+        if (eventType != START_TAG) {
+            throw new IllegalStateException("Current event is not start tag");
+        }
+        attributeCount = 0;
+        int chunkBegin = XmlChunks.skipSubtree(buffer);
+        if (chunkBegin < 0) {
+            eventType = END_DOCUMENT;
+            return;
+        }
+        buffer.position((int) (chunkBegin + XmlChunks.chunkSize(buffer, chunkBegin)));
+        nodePos = chunkBegin + XmlChunks.headerSize(buffer, chunkBegin);
+        eventType = END_TAG;
+    }
+
+    public int getEventType() {
+        return eventType;
+    }
+
+    /**
+     * the depth of current element. 0 before the root start tag, 1 for the root element.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * the tag name of current start or end tag, null for other events
+     */
+    public String getName() {
+        if (eventType != START_TAG && eventType != END_TAG) {
+            return null;
+        }
+        return stringPool.get(buffer.getInt(nodePos + XmlChunks.NODE_NAME_OFFSET));
+    }
+
+    /**
+     * the tag namespace of current start or end tag, null if not has one
+     */
+    public String getNamespace() {
+        if (eventType != START_TAG && eventType != END_TAG) {
+            return null;
+        }
+        return getString(buffer.getInt(nodePos));
+    }
+
+    /**
+     * the text of current cdata
+     */
+    public String getText() {
+        if (eventType != TEXT) {
+            return null;
+        }
+        return getString(buffer.getInt(nodePos));
+    }
+
+    /**
+     * the attribute count of current start tag, 0 for other events
+     */
+    public int getAttributeCount() {
+        return attributeCount;
+    }
+
+    public String getAttributeNamespace(int i) {
+        return getString(buffer.getInt(attributePos(i)));
+    }
+
+    public String getAttributeName(int i) {
+        int nameRef = buffer.getInt(attributePos(i) + XmlChunks.ATTRIBUTE_NAME_OFFSET);
+        String name = stringPool.get(nameRef);
+        if (name.isEmpty() && resourceIds != null && nameRef < resourceIds.length) {
+            // some processed apk file make the string pool value empty, if it is a xmlmap attr.
+            name = Attribute.AttrIds.getString(resourceIds[nameRef]);
+        }
+        return name;
+    }
+
+    /**
+     * the framework resource id of attribute name, such as 0x0101021b for versionCode. 0 if has none
+     */
+    public long getAttributeResourceId(int i) {
+        int nameRef = buffer.getInt(attributePos(i) + XmlChunks.ATTRIBUTE_NAME_OFFSET);
+        if (resourceIds == null || nameRef < 0 || nameRef >= resourceIds.length) {
+            return 0;
+        }
+        return resourceIds[nameRef];
+    }
+
+    /**
+     * the attribute value as string, resource references are resolved with resource table and locale.
+     */
+    public String getAttributeValue(int i) {
+        int pos = attributePos(i);
+        int rawValueRef = buffer.getInt(pos + XmlChunks.ATTRIBUTE_RAW_VALUE_OFFSET);
+        if (rawValueRef > 0) {
+            return stringPool.get(rawValueRef);
+        }
+        ByteBuffer b = buffer.duplicate();
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        b.position(pos + XmlChunks.ATTRIBUTE_TYPED_VALUE_OFFSET);
+        ResourceEntity resValue = ParseUtils.readResValue(b, stringPool);
+        if (resValue == null) {
+            return "";
+        }
+        String value = resValue.toStringValue(resourceTable, locale);
+        String name = getAttributeName(i);
+        if (BinaryXmlParser.intAttributes.contains(name) && Utils.isNumeric(value)) {
+            try {
+                value = BinaryXmlParser.getFinalValueAsString(name, value);
+            } catch (Exception ignore) {
+            }
+        }
+        return value;
+    }
+
+    /**
+     * the value of attribute with the name, null if current tag has not this attribute.
+     * Attribute names are compared in the pool data without decoding them. A name may be at more than one
+     * index of the pool(aapt writes attribute names with resource ids apart from other strings), so names are
+     * compared, not indexes. If the pool is sorted and has not the name, only names removed from the pool
+     * are checked.
+     */
+    public String getAttributeValue(String name) {
+        boolean inPool = !stringPool.isSorted() || stringPool.indexOf(name) >= 0;
+        for (int i = 0; i < attributeCount; i++) {
+            int nameRef = buffer.getInt(attributePos(i) + XmlChunks.ATTRIBUTE_NAME_OFFSET);
+            if (inPool && stringPool.contentEquals(nameRef, name)) {
+                return getAttributeValue(i);
+            }
+            // names removed from string pool are got from resource map
+            CharSequence poolName = stringPool.getCharSequence(nameRef);
+            if ((poolName == null || poolName.length() == 0) && name.equals(getAttributeName(i))) {
+                return getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    private int attributePos(int i) {
+        if (i < 0 || i >= attributeCount) {
+            throw new IndexOutOfBoundsException("attribute index:" + i + ", count:" + attributeCount);
+        }
+        return XmlChunks.attributePos(buffer, nodePos, i);
+    }
+
+    private String getString(int ref) {
+        return ref < 0 ? null : stringPool.get(ref);
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public void setLocale(Locale locale) {
+        if (locale != null) {
+            this.locale = locale;
+        }
+    }
+
+    public StringPool getStringPool() {
+        return stringPool;
+    }
+}
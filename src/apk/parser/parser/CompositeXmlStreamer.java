@@ -7,48 +7,112 @@ import apk.parser.struct.xml.XmlNodeEndTag;
 import apk.parser.struct.xml.XmlNamespaceStartTag;
 
 /**
+ * Pass events to multiple streamers.
+ * A streamer which skipped a subtree or stopped no longer gets the events it does not want; the parser
+ * skips a subtree or stops only when all streamers agree.
+ *
  * @author dongliu
  */
 public class CompositeXmlStreamer implements XmlStreamer {
 
     public XmlStreamer[] xmlStreamers;
 
+    // the depth of the element whose subtree is skipped by each streamer, 0 if not skipping
+    private final int[] skipDepths;
+    private final boolean[] stopped;
+    private int depth;
+
     public CompositeXmlStreamer(XmlStreamer... xmlStreamers) {
         this.xmlStreamers = xmlStreamers;
+        this.skipDepths = new int[xmlStreamers.length];
+        this.stopped = new boolean[xmlStreamers.length];
     }
 
     @Override
-    public void onStartTag(XmlNodeStartTag xmlNodeStartTag) {
-        for (XmlStreamer xmlStreamer : xmlStreamers) {
-            xmlStreamer.onStartTag(xmlNodeStartTag);
+    public int onStartTag(XmlNodeStartTag xmlNodeStartTag) {
+        depth++;
+        boolean skipping = false;
+        boolean active = false;
+        for (int i = 0; i < xmlStreamers.length; i++) {
+            if (stopped[i]) {
+                continue;
+            }
+            if (skipDepths[i] != 0) {
+                skipping = true;
+                continue;
+            }
+            int control = xmlStreamers[i].onStartTag(xmlNodeStartTag);
+            if (control == STOP) {
+                stopped[i] = true;
+            } else if (control == SKIP_SUBTREE) {
+                skipDepths[i] = depth;
+                skipping = true;
+            } else {
+                active = true;
+            }
+        }
+        if (active) {
+            return CONTINUE;
         }
+        return skipping ? SKIP_SUBTREE : STOP;
     }
 
     @Override
-    public void onEndTag(XmlNodeEndTag xmlNodeEndTag) {
-        for (XmlStreamer xmlStreamer : xmlStreamers) {
-            xmlStreamer.onEndTag(xmlNodeEndTag);
+    public int onEndTag(XmlNodeEndTag xmlNodeEndTag) {
+        for (int i = 0; i < xmlStreamers.length; i++) {
+            if (stopped[i] || skipDepths[i] != 0 && skipDepths[i] != depth) {
+                continue;
+            }
+            // the end tag of skipped element
+            skipDepths[i] = 0;
+            if (xmlStreamers[i].onEndTag(xmlNodeEndTag) == STOP) {
+                stopped[i] = true;
+            }
         }
+        depth--;
+        return allStopped() ? STOP : CONTINUE;
     }
 
     @Override
-    public void onCData(XmlCData xmlCData) {
-        for (XmlStreamer xmlStreamer : xmlStreamers) {
-            xmlStreamer.onCData(xmlCData);
+    public int onCData(XmlCData xmlCData) {
+        for (int i = 0; i < xmlStreamers.length; i++) {
+            if (isActive(i) && xmlStreamers[i].onCData(xmlCData) == STOP) {
+                stopped[i] = true;
+            }
         }
+        return allStopped() ? STOP : CONTINUE;
     }
 
     @Override
-    public void onNamespaceStart(XmlNamespaceStartTag tag) {
-        for (XmlStreamer xmlStreamer : xmlStreamers) {
-            xmlStreamer.onNamespaceStart(tag);
+    public int onNamespaceStart(XmlNamespaceStartTag tag) {
+        for (int i = 0; i < xmlStreamers.length; i++) {
+            if (isActive(i) && xmlStreamers[i].onNamespaceStart(tag) == STOP) {
+                stopped[i] = true;
+            }
         }
+        return allStopped() ? STOP : CONTINUE;
     }
 
     @Override
-    public void onNamespaceEnd(XmlNamespaceEndTag tag) {
-        for (XmlStreamer xmlStreamer : xmlStreamers) {
-            xmlStreamer.onNamespaceEnd(tag);
+    public int onNamespaceEnd(XmlNamespaceEndTag tag) {
+        for (int i = 0; i < xmlStreamers.length; i++) {
+            if (isActive(i) && xmlStreamers[i].onNamespaceEnd(tag) == STOP) {
+                stopped[i] = true;
+            }
+        }
+        return allStopped() ? STOP : CONTINUE;
+    }
+
+    private boolean isActive(int i) {
+        return !stopped[i] && skipDepths[i] == 0;
+    }
+
+    private boolean allStopped() {
+        for (boolean s : stopped) {
+            if (!s) {
+                return false;
+            }
         }
+        return true;
     }
 }
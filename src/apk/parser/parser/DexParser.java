@@ -6,6 +6,7 @@ import apk.parser.struct.StringPool;
 import apk.parser.struct.dex.DexClassStruct;
 import apk.parser.struct.dex.DexHeader;
 import apk.parser.utils.Buffers;
+import apk.parser.utils.ParallelDecoder;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -29,6 +30,9 @@ public class DexParser {
 
     private DexClass[] dexClasses;
 
+    // string pools with at least this count of strings are decoded in parallel
+    private int parallelThreshold = ParallelDecoder.DEFAULT_THRESHOLD;
+
     public DexParser(ByteBuffer buffer) {
         this.buffer = buffer.duplicate();
         this.buffer.order(byteOrder);
@@ -124,35 +128,52 @@ public class DexParser {
     /**
      * read string pool for dex file.
      * dex file string pool diff a bit with binary xml file or resource table.
+     * large pools are decoded in parallel.
      *
      * @param offsets
      * @return
      * @throws IOException
      */
-    private StringPool readStrings(long[] offsets) {
-        // read strings.
-        // buffer some apk, the strings' offsets may not well ordered. we sort it first
-
-        StringPoolEntry[] entries = new StringPoolEntry[offsets.length];
-        for (int i = 0; i < offsets.length; i++) {
-            entries[i] = new StringPoolEntry(i, offsets[i]);
+    private StringPool readStrings(final long[] offsets) {
+        final StringPool stringpool = new StringPool(offsets.length);
+        if (offsets.length < parallelThreshold) {
+            readStrings(buffer, offsets, stringpool, 0, offsets.length);
+            return stringpool;
+        }
+        ParallelDecoder.decode(offsets.length, new ParallelDecoder.RangeDecoder() {
+            @Override
+            public void decode(int from, int to) {
+                ByteBuffer b = buffer.duplicate();
+                b.order(byteOrder);
+                readStrings(b, offsets, stringpool, from, to);
+            }
+        });
+        // the first string of each range is always read, share it if same as the last of previous range
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] == offsets[i - 1]) {
+                stringpool.set(i, stringpool.get(i - 1));
+            }
         }
+        return stringpool;
+    }
 
+    /**
+     * read strings from index (inclusive) to index (exclusive).
+     */
+    private void readStrings(ByteBuffer buffer, long[] offsets, StringPool stringpool, int from, int to) {
         String lastStr = null;
         long lastOffset = -1;
-        StringPool stringpool = new StringPool(offsets.length);
-        for (StringPoolEntry entry : entries) {
-            if (entry.getOffset() == lastOffset) {
-                stringpool.set(entry.getIdx(), lastStr);
+        for (int i = from; i < to; i++) {
+            if (offsets[i] == lastOffset) {
+                stringpool.set(i, lastStr);
                 continue;
             }
-            buffer.position((int) entry.getOffset());
-            lastOffset = entry.getOffset();
-            String str = readString();
+            buffer.position((int) offsets[i]);
+            lastOffset = offsets[i];
+            String str = readString(buffer);
             lastStr = str;
-            stringpool.set(entry.getIdx(), str);
+            stringpool.set(i, str);
         }
-        return stringpool;
     }
 
     /*
@@ -171,10 +192,10 @@ public class DexParser {
     /**
      * read dex encoding string.
      */
-    private String readString() {
+    private String readString(ByteBuffer buffer) {
         // the length is char len, not byte len
-        int strLen = readVarInts();
-        return readString(strLen);
+        int strLen = readVarInts(buffer);
+        return readString(buffer, strLen);
     }
 
     /**
@@ -182,7 +203,7 @@ public class DexParser {
      *
      * @param strLen the java-utf16-char len, not strLen nor bytes len.
      */
-    private String readString(int strLen) {
+    private String readString(ByteBuffer buffer, int strLen) {
         char[] chars = new char[strLen];
 
         for (int i = 0; i < strLen; i++) {
@@ -219,7 +240,7 @@ public class DexParser {
      * @return
      * @throws IOException
      */
-    private int readVarInts() {
+    private int readVarInts(ByteBuffer buffer) {
         int i = 0;
         int count = 0;
         short s;
@@ -287,5 +308,17 @@ public class DexParser {
         return dexClasses;
     }
 
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * string pools with at least this count of strings are decoded in parallel.
+     * default {@link ParallelDecoder#DEFAULT_THRESHOLD}, Integer.MAX_VALUE to always decode in current thread.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
 }
 
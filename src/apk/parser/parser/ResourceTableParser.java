@@ -3,9 +3,9 @@ package apk.parser.parser;
 import apk.parser.struct.resource.PackageHeader;
 import apk.parser.struct.resource.ResourcePackage;
 import apk.parser.struct.resource.Type;
-import apk.parser.struct.resource.ResTableConfig;
 import apk.parser.struct.resource.ResourceTable;
 import apk.parser.struct.resource.TypeSpec;
+import apk.parser.struct.resource.TypeChunkIndex;
 import apk.parser.struct.resource.TypeSpecHeader;
 import apk.parser.struct.resource.ResourceTableHeader;
 import apk.parser.struct.resource.TypeHeader;
@@ -17,6 +17,7 @@ import apk.parser.struct.StringPoolHeader;
 import apk.parser.utils.Buffers;
 import apk.parser.utils.Pair;
 import apk.parser.utils.ParseUtils;
+import apk.parser.utils.StringInterner;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -43,6 +44,12 @@ public class ResourceTableParser {
 
     private Set<Locale> locales;
 
+    // only index type chunks, read them when queried
+    private boolean lazyTypes;
+    private StringInterner stringInterner;
+    // keep the global string pool encoded, not cache decoded strings
+    private boolean rawStringPool;
+
     public ResourceTableParser(ByteBuffer buffer) {
         this.buffer = buffer.duplicate();
         this.buffer.order(byteOrder);
@@ -57,7 +64,7 @@ public class ResourceTableParser {
         ResourceTableHeader resourceTableHeader = (ResourceTableHeader) readChunkHeader();
 
         // read string pool chunk
-        stringPool = ParseUtils.readStringPool(buffer, (StringPoolHeader) readChunkHeader());
+        stringPool = ParseUtils.readStringPool(buffer, (StringPoolHeader) readChunkHeader(), !rawStringPool);
 
         resourceTable = new ResourceTable();
         resourceTable.setStringPool(stringPool);
@@ -75,6 +82,9 @@ public class ResourceTableParser {
         Pair<ResourcePackage, PackageHeader> pair = new Pair<ResourcePackage,PackageHeader>();
         //read packageHeader
         ResourcePackage resourcePackage = new ResourcePackage(packageHeader);
+        if (stringInterner != null && resourcePackage.getName() != null) {
+            resourcePackage.setName(stringInterner.intern(resourcePackage.getName()));
+        }
         pair.setLeft(resourcePackage);
 
         long beginPos = buffer.position();
@@ -82,21 +92,29 @@ public class ResourceTableParser {
         if (packageHeader.getTypeStrings() > 0) {
             buffer.position((int) (beginPos + packageHeader.getTypeStrings()
                     - packageHeader.getHeaderSize()));
-            resourcePackage.setTypeStringPool(ParseUtils.readStringPool(buffer,
-                    (StringPoolHeader) readChunkHeader()));
+            StringPool typeStringPool = ParseUtils.readStringPool(buffer, (StringPoolHeader) readChunkHeader());
+            // type names(string, drawable...) are few and same in all apks
+            typeStringPool.setInterner(stringInterner);
+            resourcePackage.setTypeStringPool(typeStringPool);
         }
 
         //read key string pool
         if (packageHeader.getKeyStrings() > 0) {
             buffer.position((int) (beginPos + packageHeader.getKeyStrings()
                     - packageHeader.getHeaderSize()));
-            resourcePackage.setKeyStringPool(ParseUtils.readStringPool(buffer,
-                    (StringPoolHeader) readChunkHeader()));
+            resourcePackage.setKeyStringPool(ParseUtils.readStringPool(buffer, (StringPoolHeader) readChunkHeader()));
         }
 
 
+        if (lazyTypes) {
+            resourcePackage.setTypeChunkIndex(new TypeChunkIndex(buffer, stringPool));
+        }
+
         outer:
         while (buffer.hasRemaining()) {
+            if (lazyTypes && indexTypeChunk(resourcePackage)) {
+                continue;
+            }
             ChunkHeader chunkHeader = readChunkHeader();
             switch (chunkHeader.getChunkType()) {
                 case ChunkType.TABLE_TYPE_SPEC:
@@ -152,10 +170,31 @@ public class ResourceTableParser {
             }
         }
 
+        if (lazyTypes) {
+            locales.addAll(resourcePackage.getTypeChunkIndex().getLocales());
+        }
         return pair;
 
     }
 
+    /**
+     * if next chunk is a type chunk, add it to type chunk index and skip it, without reading its content.
+     *
+     * @return true if a type chunk was indexed
+     */
+    private boolean indexTypeChunk(ResourcePackage resourcePackage) {
+        int chunkBegin = buffer.position();
+        if (Buffers.readUShort(buffer) != ChunkType.TABLE_TYPE) {
+            buffer.position(chunkBegin);
+            return false;
+        }
+        short typeId = (short) (buffer.get(chunkBegin + 8) & 0xff);
+        long chunkSize = buffer.getInt(chunkBegin + 4) & 0xffffffffL;
+        resourcePackage.getTypeChunkIndex().add(typeId, chunkBegin);
+        buffer.position((int) (chunkBegin + chunkSize));
+        return true;
+    }
+
     private ChunkHeader readChunkHeader() {
         long begin = buffer.position();
 
@@ -205,7 +244,7 @@ public class ResourceTableParser {
                 typeHeader.setRes1(Buffers.readUShort(buffer));
                 typeHeader.setEntryCount(Buffers.readUInt(buffer));
                 typeHeader.setEntriesStart(Buffers.readUInt(buffer));
-                typeHeader.setConfig(readResTableConfig());
+                typeHeader.setConfig(ParseUtils.readResTableConfig(buffer));
                 buffer.position((int) (begin + headerSize));
                 return typeHeader;
             case ChunkType.NULL:
@@ -215,18 +254,42 @@ public class ResourceTableParser {
         }
     }
 
-    private ResTableConfig readResTableConfig() {
-        long beginPos = buffer.position();
-        ResTableConfig config = new ResTableConfig();
-        long size = Buffers.readUInt(buffer);
-        Buffers.skip(buffer, 4);
-        //read locale
-        config.setLanguage(new String(Buffers.readBytes(buffer, 2)).replace("\0", ""));
-        config.setCountry(new String(Buffers.readBytes(buffer, 2)).replace("\0", ""));
-
-        long endPos = buffer.position();
-        Buffers.skip(buffer, (int) (size - (endPos - beginPos)));
-        return config;
+    public boolean isLazyTypes() {
+        return lazyTypes;
+    }
+
+    /**
+     * If set, type chunks are only indexed with their locales when parsing. A Type is read from one chunk
+     * the first time a resource of that (type, config) is resolved, or all configs of a type id when queried via
+     * ResourcePackage.getTypes. ResourcePackage.getTypesMap only contains type ids queried.
+     */
+    public void setLazyTypes(boolean lazyTypes) {
+        this.lazyTypes = lazyTypes;
+    }
+
+    public StringInterner getStringInterner() {
+        return stringInterner;
+    }
+
+    /**
+     * if set, package names and type names are interned. The global value pool and key pools are not, they are
+     * large and mostly different between apks, and would fill a bounded interner.
+     */
+    public void setStringInterner(StringInterner stringInterner) {
+        this.stringInterner = stringInterner;
+    }
+
+    public boolean isRawStringPool() {
+        return rawStringPool;
+    }
+
+    /**
+     * If set, the global string pool(holds string values) does not keep decoded strings, strings are decoded
+     * from the table buffer every time they are read. This keeps heap usage low for tables with very large pools;
+     * the pool data stays off heap when the table buffer is a mapped buffer.
+     */
+    public void setRawStringPool(boolean rawStringPool) {
+        this.rawStringPool = rawStringPool;
     }
 
     public ResourceTable getResourceTable() {
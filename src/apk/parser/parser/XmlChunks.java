@@ -0,0 +1,130 @@
+package apk.parser.parser;
+
+import apk.parser.struct.ChunkType;
+import apk.parser.struct.StringPoolHeader;
+import apk.parser.utils.Buffers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Chunk layout of android binary xml, shared by BinaryXmlParser and BinaryXmlPullParser.
+ * Positions are absolute in the buffer, which should be little endian.
+ *
+ * @author dongliu
+ */
+final class XmlChunks {
+
+    // chunk header: type(2), headerSize(2), size(4)
+    static final int CHUNK_HEADER_SIZE = 8;
+
+    // node body of start tag: ns(4), name(4), attributeStart(2), attributeSize(2), attributeCount(2)
+    static final int NODE_NAME_OFFSET = 4;
+    static final int ATTRIBUTE_START_OFFSET = 8;
+    static final int ATTRIBUTE_SIZE_OFFSET = 10;
+    static final int ATTRIBUTE_COUNT_OFFSET = 12;
+
+    // attribute: ns(4), name(4), rawValue(4), typed value: size(2), res0(1), dataType(1), data(4)
+    static final int ATTRIBUTE_NAME_OFFSET = 4;
+    static final int ATTRIBUTE_RAW_VALUE_OFFSET = 8;
+    static final int ATTRIBUTE_TYPED_VALUE_OFFSET = 12;
+    static final int ATTRIBUTE_DATA_TYPE_OFFSET = 15;
+    static final int ATTRIBUTE_DATA_OFFSET = 16;
+
+    private XmlChunks() {
+    }
+
+    static int chunkType(ByteBuffer buffer, int chunkBegin) {
+        return buffer.getShort(chunkBegin) & 0xffff;
+    }
+
+    static int headerSize(ByteBuffer buffer, int chunkBegin) {
+        return buffer.getShort(chunkBegin + 2) & 0xffff;
+    }
+
+    static long chunkSize(ByteBuffer buffer, int chunkBegin) {
+        return buffer.getInt(chunkBegin + 4) & 0xffffffffL;
+    }
+
+    /**
+     * read string pool header, after the chunk header. buffer is positioned at the end of the header.
+     */
+    static StringPoolHeader readStringPoolHeader(ByteBuffer buffer, int chunkBegin) {
+        int headerSize = headerSize(buffer, chunkBegin);
+        StringPoolHeader stringPoolHeader = new StringPoolHeader(ChunkType.STRING_POOL, headerSize,
+                chunkSize(buffer, chunkBegin));
+        buffer.position(chunkBegin + CHUNK_HEADER_SIZE);
+        stringPoolHeader.setStringCount(Buffers.readUInt(buffer));
+        stringPoolHeader.setStyleCount(Buffers.readUInt(buffer));
+        stringPoolHeader.setFlags(Buffers.readUInt(buffer));
+        stringPoolHeader.setStringsStart(Buffers.readUInt(buffer));
+        stringPoolHeader.setStylesStart(Buffers.readUInt(buffer));
+        buffer.position(chunkBegin + headerSize);
+        return stringPoolHeader;
+    }
+
+    /**
+     * read the attribute resource ids of resource map chunk body, from buffer position
+     */
+    static long[] readResourceIds(ByteBuffer buffer, int bodySize) {
+        long[] resourceIds = new long[bodySize / 4];
+        for (int i = 0; i < resourceIds.length; i++) {
+            resourceIds[i] = Buffers.readUInt(buffer);
+        }
+        return resourceIds;
+    }
+
+    /**
+     * the position of attribute i of start tag
+     *
+     * @param nodePos the position of node body, after node header
+     */
+    static int attributePos(ByteBuffer buffer, int nodePos, int i) {
+        int attributeStart = buffer.getShort(nodePos + ATTRIBUTE_START_OFFSET) & 0xffff;
+        int attributeSize = buffer.getShort(nodePos + ATTRIBUTE_SIZE_OFFSET) & 0xffff;
+        return nodePos + attributeStart + i * attributeSize;
+    }
+
+    /**
+     * skip the chunks of children of an element by chunk size, the buffer should be positioned after
+     * the start tag chunk of the element.
+     *
+     * @return the position of the end tag chunk of the element, buffer is positioned at it;
+     * -1 if buffer ends before the end tag
+     */
+    static int skipSubtree(ByteBuffer buffer) {
+        int level = 1;
+        while (buffer.remaining() >= CHUNK_HEADER_SIZE) {
+            int chunkBegin = buffer.position();
+            int chunkType = chunkType(buffer, chunkBegin);
+            if (chunkType == ChunkType.XML_START_ELEMENT) {
+                level++;
+            } else if (chunkType == ChunkType.XML_END_ELEMENT) {
+                level--;
+                if (level == 0) {
+                    return chunkBegin;
+                }
+            }
+            buffer.position((int) (chunkBegin + chunkSize(buffer, chunkBegin)));
+        }
+        return -1;
+    }
+
+    /**
+     * if the data is a plain text xml: the first char, after utf-8 bom and white spaces, is '&lt;'
+     */
+    static boolean isPlainXml(ByteBuffer buffer, int pos) {
+        int limit = buffer.limit();
+        if (pos + 3 <= limit && (buffer.get(pos) & 0xff) == 0xef && (buffer.get(pos + 1) & 0xff) == 0xbb
+                && (buffer.get(pos + 2) & 0xff) == 0xbf) {
+            pos += 3;
+        }
+        while (pos < limit) {
+            byte b = buffer.get(pos);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return b == '<';
+            }
+            pos++;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,195 @@
+package apk.parser.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled path query for binary xml, evaluated by {@link XmlQueryStreamer} in one streaming pass.
+ * Supported syntax:
+ * <pre>
+ * /manifest/application/activity[@exported='true']/@name
+ * //meta-data[@name='com.google.android.gms.version']/@value
+ * /manifest/uses-permission
+ * </pre>
+ * Steps are separated by '/' (child) or '//' (descendant), '*' matches any tag. Each step may have
+ * predicates: [@attr] for attribute exists, [@attr='value'] for attribute value equals. The query may end with
+ * /@attr to select attribute values; otherwise the matched tag names are selected.
+ * Namespace prefixes of tag and attribute names(such as android:) are ignored.
+ * Query is immutable, and can be shared by multiple streamers.
+ *
+ * @author dongliu
+ */
+public class XmlPathQuery {
+
+    // the max steps of one query, so the states can be kept in a long
+    static final int MAX_STEPS = 63;
+
+    private final String expression;
+    final Step[] steps;
+    // the attribute selected, null if tag names are selected
+    final String attribute;
+
+    private XmlPathQuery(String expression, Step[] steps, String attribute) {
+        this.expression = expression;
+        this.steps = steps;
+        this.attribute = attribute;
+    }
+
+    /**
+     * compile a query
+     *
+     * @throws IllegalArgumentException if the expression is not a valid query
+     */
+    public static XmlPathQuery compile(String expression) {
+        return new Compiler(expression).compile();
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * one location step
+     */
+    static class Step {
+        // match at any depth below the previous step if true, otherwise only the children
+        final boolean descendant;
+        // tag name, null for any tag
+        final String name;
+        // predicate attribute names, and values. value is null for attribute exists
+        final String[] predicateNames;
+        final String[] predicateValues;
+
+        Step(boolean descendant, String name, String[] predicateNames, String[] predicateValues) {
+            this.descendant = descendant;
+            this.name = name;
+            this.predicateNames = predicateNames;
+            this.predicateValues = predicateValues;
+        }
+    }
+
+    private static class Compiler {
+        private final String expression;
+        private int pos;
+
+        private Compiler(String expression) {
+            if (expression == null) {
+                throw new IllegalArgumentException("Query is null");
+            }
+            this.expression = expression.trim();
+        }
+
+        private XmlPathQuery compile() {
+            List<Step> steps = new ArrayList<Step>();
+            String attribute = null;
+            if (expression.isEmpty() || expression.charAt(0) != '/') {
+                throw error("query should start with /");
+            }
+            while (pos < expression.length()) {
+                expect('/');
+                boolean descendant = false;
+                if (peek() == '/') {
+                    pos++;
+                    descendant = true;
+                }
+                if (peek() == '@') {
+                    if (descendant) {
+                        throw error("attribute should be selected with /@");
+                    }
+                    pos++;
+                    attribute = readName();
+                    if (pos != expression.length()) {
+                        throw error("attribute should be the last step");
+                    }
+                    break;
+                }
+                String name = readName();
+                List<String> predicateNames = new ArrayList<String>();
+                List<String> predicateValues = new ArrayList<String>();
+                while (peek() == '[') {
+                    pos++;
+                    expect('@');
+                    predicateNames.add(readName());
+                    String value = null;
+                    if (peek() == '=') {
+                        pos++;
+                        value = readQuoted();
+                    }
+                    predicateValues.add(value);
+                    expect(']');
+                }
+                steps.add(new Step(descendant, name.equals("*") ? null : name,
+                        predicateNames.toArray(new String[predicateNames.size()]),
+                        predicateValues.toArray(new String[predicateValues.size()])));
+            }
+            if (steps.isEmpty()) {
+                throw error("no tag step");
+            }
+            if (steps.size() > MAX_STEPS) {
+                throw error("too many steps, max " + MAX_STEPS);
+            }
+            return new XmlPathQuery(expression, steps.toArray(new Step[steps.size()]), attribute);
+        }
+
+        /**
+         * read a tag or attribute name, with namespace prefix removed
+         */
+        private String readName() {
+            int begin = pos;
+            while (pos < expression.length()) {
+                char c = expression.charAt(pos);
+                if (c == '/' || c == '[' || c == ']' || c == '=' || c == '@' || c == '\'' || c == '"'
+                        || Character.isWhitespace(c)) {
+                    break;
+                }
+                pos++;
+            }
+            if (pos == begin) {
+                throw error("name expected");
+            }
+            String name = expression.substring(begin, pos);
+            int idx = name.indexOf(':');
+            if (idx >= 0) {
+                name = name.substring(idx + 1);
+                if (name.isEmpty()) {
+                    throw error("name expected");
+                }
+            }
+            return name;
+        }
+
+        private String readQuoted() {
+            char quote = peek();
+            if (quote != '\'' && quote != '"') {
+                throw error("quoted value expected");
+            }
+            int end = expression.indexOf(quote, pos + 1);
+            if (end < 0) {
+                throw error("unclosed quote");
+            }
+            String value = expression.substring(pos + 1, end);
+            pos = end + 1;
+            return value;
+        }
+
+        private char peek() {
+            return pos < expression.length() ? expression.charAt(pos) : 0;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("'" + c + "' expected");
+            }
+            pos++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid query: " + expression + ", at " + pos + ": " + message);
+        }
+    }
+}
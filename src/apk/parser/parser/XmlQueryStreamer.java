@@ -0,0 +1,228 @@
+package apk.parser.parser;
+
+import apk.parser.struct.xml.Attribute;
+import apk.parser.struct.xml.Attributes;
+import apk.parser.struct.xml.XmlCData;
+import apk.parser.struct.xml.XmlNamespaceEndTag;
+import apk.parser.struct.xml.XmlNamespaceStartTag;
+import apk.parser.struct.xml.XmlNodeEndTag;
+import apk.parser.struct.xml.XmlNodeStartTag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluate path queries in one pass of binary xml parse, no document or xml text is built.
+ * Each query is run as a state machine: the states of a query at an element are the steps which may match
+ * its children. Tag names are resolved to codes once for each name index in string pool, then steps are matched
+ * by code. Subtrees no query can match are skipped, attribute values are only resolved for predicates and
+ * selected attributes of matched tags.
+ * <pre>
+ * XmlQueryStreamer streamer = new XmlQueryStreamer(XmlPathQuery.compile("//activity/@name"));
+ * binaryXmlParser.setXmlStreamer(streamer);
+ * binaryXmlParser.parse();
+ * List&lt;String&gt; names = streamer.getResults(0);
+ * </pre>
+ *
+ * @author dongliu
+ */
+public class XmlQueryStreamer implements XmlStreamer {
+
+    // tag code for names not in queries
+    private static final int TAG_OTHER = 0;
+    // step code for any tag
+    private static final int TAG_ANY = -1;
+
+    private final XmlPathQuery[] queries;
+    // tag code of each step of each query
+    private final int[][] stepCodes;
+    private final Map<String, Integer> tagCodes = new HashMap<String, Integer>();
+    // tag codes by tag name index in string pool, cached as code + 1
+    private int[] tagCodeCache = new int[64];
+
+    // states of each query for each depth, bit i set if step i may match the children of element at the depth
+    private long[][] states = new long[16][];
+    private int depth;
+    private final List<List<String>> results;
+
+    public XmlQueryStreamer(XmlPathQuery... queries) {
+        this.queries = queries;
+        this.stepCodes = new int[queries.length][];
+        this.results = new ArrayList<List<String>>(queries.length);
+        for (int q = 0; q < queries.length; q++) {
+            XmlPathQuery.Step[] steps = queries[q].steps;
+            stepCodes[q] = new int[steps.length];
+            for (int i = 0; i < steps.length; i++) {
+                String name = steps[i].name;
+                if (name == null) {
+                    stepCodes[q][i] = TAG_ANY;
+                    continue;
+                }
+                Integer code = tagCodes.get(name);
+                if (code == null) {
+                    code = tagCodes.size() + 1;
+                    tagCodes.put(name, code);
+                }
+                stepCodes[q][i] = code;
+            }
+            results.add(new ArrayList<String>());
+        }
+        // the document: the first step may match the root element
+        states[0] = new long[queries.length];
+        Arrays.fill(states[0], 1L);
+    }
+
+    @Override
+    public int onStartTag(XmlNodeStartTag xmlNodeStartTag) {
+        int tagCode = tagCode(xmlNodeStartTag);
+        long[] parent = states[depth];
+        depth++;
+        if (depth == states.length) {
+            states = Arrays.copyOf(states, states.length * 2);
+        }
+        long[] current = states[depth];
+        if (current == null) {
+            current = new long[queries.length];
+            states[depth] = current;
+        }
+        boolean active = false;
+        for (int q = 0; q < queries.length; q++) {
+            XmlPathQuery.Step[] steps = queries[q].steps;
+            long state = parent[q];
+            long next = 0;
+            boolean matched = false;
+            while (state != 0) {
+                int i = Long.numberOfTrailingZeros(state);
+                state &= state - 1;
+                XmlPathQuery.Step step = steps[i];
+                if (step.descendant) {
+                    next |= 1L << i;
+                }
+                if (!matchStep(step, stepCodes[q][i], tagCode, xmlNodeStartTag)) {
+                    continue;
+                }
+                if (i == steps.length - 1) {
+                    // one element is selected once, even matched by multiple paths
+                    matched = true;
+                } else {
+                    next |= 1L << (i + 1);
+                }
+            }
+            if (matched) {
+                select(q, xmlNodeStartTag);
+            }
+            current[q] = next;
+            active |= next != 0;
+        }
+        return active ? CONTINUE : SKIP_SUBTREE;
+    }
+
+    private boolean matchStep(XmlPathQuery.Step step, int stepCode, int tagCode, XmlNodeStartTag tag) {
+        if (stepCode != TAG_ANY && stepCode != tagCode) {
+            return false;
+        }
+        if (step.predicateNames.length == 0) {
+            return true;
+        }
+        Attributes attributes = tag.getAttributes();
+        for (int i = 0; i < step.predicateNames.length; i++) {
+            Attribute attribute = attributes == null ? null : attributes.getAttribute(step.predicateNames[i]);
+            if (attribute == null) {
+                return false;
+            }
+            String value = step.predicateValues[i];
+            if (value != null && !value.equals(attribute.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void select(int q, XmlNodeStartTag tag) {
+        String attributeName = queries[q].attribute;
+        if (attributeName == null) {
+            results.get(q).add(tag.getName());
+            return;
+        }
+        Attributes attributes = tag.getAttributes();
+        String value = attributes == null ? null : attributes.get(attributeName);
+        if (value != null) {
+            results.get(q).add(value);
+        }
+    }
+
+    /**
+     * the tag code of tag, resolved from tag name once for each name index of the xml file.
+     */
+    private int tagCode(XmlNodeStartTag xmlNodeStartTag) {
+        int nameIndex = xmlNodeStartTag.getNameIndex();
+        if (nameIndex < 0) {
+            return tagCode(xmlNodeStartTag.getName());
+        }
+        if (nameIndex >= tagCodeCache.length) {
+            tagCodeCache = Arrays.copyOf(tagCodeCache, Math.max(nameIndex + 1, tagCodeCache.length * 2));
+        }
+        int code = tagCodeCache[nameIndex];
+        if (code == 0) {
+            code = tagCode(xmlNodeStartTag.getName()) + 1;
+            tagCodeCache[nameIndex] = code;
+        }
+        return code - 1;
+    }
+
+    private int tagCode(String tagName) {
+        Integer code = tagCodes.get(tagName);
+        return code == null ? TAG_OTHER : code;
+    }
+
+    @Override
+    public int onEndTag(XmlNodeEndTag xmlNodeEndTag) {
+        depth--;
+        return CONTINUE;
+    }
+
+    @Override
+    public int onCData(XmlCData xmlCData) {
+        return CONTINUE;
+    }
+
+    @Override
+    public int onNamespaceStart(XmlNamespaceStartTag tag) {
+        return CONTINUE;
+    }
+
+    @Override
+    public int onNamespaceEnd(XmlNamespaceEndTag tag) {
+        return CONTINUE;
+    }
+
+    /**
+     * the values selected by the query, in document order
+     *
+     * @param index the index of query, as passed to constructor
+     */
+    public List<String> getResults(int index) {
+        return results.get(index);
+    }
+
+    /**
+     * the values selected by the query, in document order
+     *
+     * @return the values, null if the query is not evaluated by this streamer
+     */
+    public List<String> getResults(XmlPathQuery query) {
+        for (int q = 0; q < queries.length; q++) {
+            if (queries[q] == query) {
+                return results.get(q);
+            }
+        }
+        return null;
+    }
+
+    public XmlPathQuery[] getQueries() {
+        return queries;
+    }
+}
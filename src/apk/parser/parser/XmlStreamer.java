@@ -8,18 +8,33 @@ import apk.parser.struct.xml.XmlNamespaceStartTag;
 
 /**
  * callback interface for parse binary xml file.
+ * Every callback returns how the parser should go on: CONTINUE, SKIP_SUBTREE or STOP.
  *
  * @author dongliu
  */
 public interface XmlStreamer {
 
-    void onStartTag(XmlNodeStartTag xmlNodeStartTag);
+    /**
+     * go on parsing
+     */
+    int CONTINUE = 0;
+    /**
+     * returned by onStartTag: skip the children of this element, the end tag of the element is still passed.
+     * same as CONTINUE for other callbacks.
+     */
+    int SKIP_SUBTREE = 1;
+    /**
+     * stop parsing, no more callbacks
+     */
+    int STOP = 2;
 
-    void onEndTag(XmlNodeEndTag xmlNodeEndTag);
+    int onStartTag(XmlNodeStartTag xmlNodeStartTag);
 
-    void onCData(XmlCData xmlCData);
+    int onEndTag(XmlNodeEndTag xmlNodeEndTag);
 
-    void onNamespaceStart(XmlNamespaceStartTag tag);
+    int onCData(XmlCData xmlCData);
 
-    void onNamespaceEnd(XmlNamespaceEndTag tag);
+    int onNamespaceStart(XmlNamespaceStartTag tag);
+
+    int onNamespaceEnd(XmlNamespaceEndTag tag);
 }
@@ -0,0 +1,15 @@
+package apk.parser.parser;
+
+/**
+ * create one streamer for each binary xml file, when many files are parsed concurrently.
+ * Streamers are not shared between files, so they need not be thread-safe.
+ *
+ * @author dongliu
+ */
+public interface XmlStreamerFactory {
+
+    /**
+     * @param path the xml file path in apk file
+     */
+    XmlStreamer create(String path);
+}
@@ -6,48 +6,92 @@ import apk.parser.struct.xml.XmlNodeStartTag;
 import apk.parser.struct.xml.XmlNodeEndTag;
 import apk.parser.struct.xml.XmlNamespaceStartTag;
 import apk.parser.struct.xml.Attribute;
+import apk.parser.exception.ParserException;
 import apk.parser.utils.xml.XmlEscaper;
 
+import java.io.IOException;
+import java.io.Flushable;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 /**
  * trans to xml text when parse binary xml file.
+ * The text is written to an Appendable as parsed; by default a StringBuilder, whose content is got by getXml.
+ * Write errors of caller's Appendable are thrown as ParserException, with the IOException as cause.
  *
  * @author dongliu
  */
 public class XmlTranslator implements XmlStreamer {
-    private StringBuilder sb;
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n";
+    // the initial capacity of default builder, enough for most manifests
+    private static final int DEFAULT_CAPACITY = 8 * 1024;
+    // indentation up to the length can be appended at once
+    private static final String TABS = "\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t";
+
+    private final Appendable out;
+    // the builder created by this translator, null if write to caller's Appendable
+    private final StringBuilder builder;
     private int shift = 0;
     private XmlNamespaces namespaces;
     private boolean isLastStartTag;
 
     public XmlTranslator() {
-        sb = new StringBuilder();
-        sb.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        this.builder = new StringBuilder(DEFAULT_CAPACITY);
+        this.out = builder;
+        this.namespaces = new XmlNamespaces();
+        append(XML_HEADER);
+    }
+
+    /**
+     * write xml text to the Appendable, such as a Writer.
+     * The Appendable is not flushed or closed by translator.
+     */
+    public XmlTranslator(Appendable out) {
+        this.builder = null;
+        this.out = out;
         this.namespaces = new XmlNamespaces();
+        append(XML_HEADER);
+    }
+
+    /**
+     * write xml text to the channel as utf-8. Call {@link #flush()} after parse; the channel is not closed.
+     */
+    public XmlTranslator(WritableByteChannel channel) {
+        this(Channels.newWriter(channel, "UTF-8"));
     }
 
     @Override
-    public void onStartTag(XmlNodeStartTag xmlNodeStartTag) {
+    public int onStartTag(XmlNodeStartTag xmlNodeStartTag) {
+        try {
+            writeStartTag(xmlNodeStartTag);
+        } catch (IOException e) {
+            throw writeFailed(e);
+        }
+        return CONTINUE;
+    }
+
+    private void writeStartTag(XmlNodeStartTag xmlNodeStartTag) throws IOException {
         if (isLastStartTag) {
-            sb.append(">\n");
+            out.append(">\n");
         }
         appendShift(shift++);
-        sb.append('<');
+        out.append('<');
         if (xmlNodeStartTag.getNamespace() != null) {
             String prefix = namespaces.getPrefixViaUri(xmlNodeStartTag.getNamespace());
             if (prefix != null) {
-                sb.append(prefix).append(":");
+                out.append(prefix).append(":");
             } else {
-                sb.append(xmlNodeStartTag.getNamespace()).append(":");
+                out.append(xmlNodeStartTag.getNamespace()).append(":");
             }
         }
-        sb.append(xmlNodeStartTag.getName());
+        out.append(xmlNodeStartTag.getName());
 
         List<XmlNamespaces.XmlNamespace> nps = namespaces.consumeNameSpaces();
         if (!nps.isEmpty()) {
             for (XmlNamespaces.XmlNamespace np : nps) {
-                sb.append(" xmlns:").append(np.getPrefix()).append("=\"")
+                out.append(" xmlns:").append(np.getPrefix()).append("=\"")
                         .append(np.getUri())
                         .append("\"");
             }
@@ -59,62 +103,106 @@ public class XmlTranslator implements XmlStreamer {
         }
     }
 
-    private void onAttribute(Attribute attribute) {
-        sb.append(" ");
+    private void onAttribute(Attribute attribute) throws IOException {
+        out.append(" ");
         String namespace = this.namespaces.getPrefixViaUri(attribute.getNamespace());
         if (namespace == null) {
             namespace = attribute.getNamespace();
         }
         if (namespace != null && !namespace.isEmpty()) {
-            sb.append(namespace).append(':');
+            out.append(namespace).append(':');
         }
         String escapedFinalValue = XmlEscaper.escapeXml10(attribute.getValue());
-        sb.append(attribute.getName()).append('=').append('"')
+        out.append(attribute.getName()).append('=').append('"')
                 .append(escapedFinalValue).append('"');
     }
 
     @Override
-    public void onEndTag(XmlNodeEndTag xmlNodeEndTag) {
+    public int onEndTag(XmlNodeEndTag xmlNodeEndTag) {
+        try {
+            writeEndTag(xmlNodeEndTag);
+        } catch (IOException e) {
+            throw writeFailed(e);
+        }
+        return CONTINUE;
+    }
+
+    private void writeEndTag(XmlNodeEndTag xmlNodeEndTag) throws IOException {
         --shift;
         if (isLastStartTag) {
-            sb.append(" />\n");
+            out.append(" />\n");
         } else {
             appendShift(shift);
-            sb.append("</");
+            out.append("</");
             if (xmlNodeEndTag.getNamespace() != null) {
-                sb.append(xmlNodeEndTag.getNamespace()).append(":");
+                out.append(xmlNodeEndTag.getNamespace()).append(":");
             }
-            sb.append(xmlNodeEndTag.getName());
-            sb.append(">\n");
+            out.append(xmlNodeEndTag.getName());
+            out.append(">\n");
         }
         isLastStartTag = false;
     }
 
 
     @Override
-    public void onCData(XmlCData xmlCData) {
-        appendShift(shift);
-        sb.append(xmlCData.getValue()).append('\n');
+    public int onCData(XmlCData xmlCData) {
+        try {
+            appendShift(shift);
+            out.append(xmlCData.getValue()).append('\n');
+        } catch (IOException e) {
+            throw writeFailed(e);
+        }
         isLastStartTag = false;
+        return CONTINUE;
     }
 
     @Override
-    public void onNamespaceStart(XmlNamespaceStartTag tag) {
+    public int onNamespaceStart(XmlNamespaceStartTag tag) {
         this.namespaces.addNamespace(tag);
+        return CONTINUE;
     }
 
     @Override
-    public void onNamespaceEnd(XmlNamespaceEndTag tag) {
+    public int onNamespaceEnd(XmlNamespaceEndTag tag) {
         this.namespaces.removeNamespace(tag);
+        return CONTINUE;
+    }
+
+    private void appendShift(int shift) throws IOException {
+        while (shift > TABS.length()) {
+            out.append(TABS);
+            shift -= TABS.length();
+        }
+        out.append(TABS, 0, shift);
+    }
+
+    private void append(String str) {
+        try {
+            out.append(str);
+        } catch (IOException e) {
+            throw writeFailed(e);
+        }
+    }
+
+    private static ParserException writeFailed(IOException e) {
+        return new ParserException("Write xml failed", e);
     }
 
-    private void appendShift(int shift) {
-        for (int i = 0; i < shift; i++) {
-            sb.append("\t");
+    /**
+     * flush the Appendable written to, if it is Flushable
+     */
+    public void flush() throws IOException {
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
         }
     }
 
+    /**
+     * the xml text
+     *
+     * @return the text, null if translator writes to caller's Appendable
+     */
     public String getXml() {
-        return sb.toString();
+        return builder == null ? null : builder.toString();
     }
 }
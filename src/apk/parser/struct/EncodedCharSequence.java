@@ -0,0 +1,60 @@
+package apk.parser.struct;
+
+import apk.parser.utils.Buffers;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A read-only view of one string in string pool data, chars are read from the encoded bytes.
+ * Encoded as utf-16le, or as single-byte chars(utf-8 string with ascii chars only).
+ *
+ * @author dongliu
+ */
+class EncodedCharSequence implements CharSequence {
+
+    // only absolute get methods are used, so the buffer can be shared
+    private final ByteBuffer buffer;
+    private final int start;
+    private final int length;
+    private final boolean utf16;
+
+    EncodedCharSequence(ByteBuffer buffer, int start, int length, boolean utf16) {
+        this.buffer = buffer;
+        this.start = start;
+        this.length = length;
+        this.utf16 = utf16;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index:" + index + ", length:" + length);
+        }
+        if (utf16) {
+            return buffer.getChar(start + index * 2);
+        }
+        return (char) (buffer.get(start + index) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int begin, int end) {
+        if (begin < 0 || end > length || begin > end) {
+            throw new IndexOutOfBoundsException("begin:" + begin + ", end:" + end + ", length:" + length);
+        }
+        return new EncodedCharSequence(buffer, start + (utf16 ? begin * 2 : begin), end - begin, utf16);
+    }
+
+    @Override
+    public String toString() {
+        ByteBuffer b = buffer.duplicate();
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        b.position(start);
+        return utf16 ? Buffers.readString(b, length) : Buffers.readUTF8String(b, length);
+    }
+}
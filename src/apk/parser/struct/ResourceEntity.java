@@ -7,7 +7,7 @@ import java.util.Locale;
 
 /**
  * one entity, may be one entry in resource table, or string value
- * one apk only has one resource table
+ * one apk only has one resource table. immutable, resolved values are cached by resource table.
  *
  * @author dongliu
  */
@@ -16,45 +16,41 @@ public class ResourceEntity {
     /**
      * the resource id
      */
-    private long resourceId;
+    private final long resourceId;
 
     /**
      * the resource's value
      */
-    private String value;
+    private final String value;
 
     public ResourceEntity(int i) {
+        this.resourceId = 0;
         this.value = String.valueOf(i);
     }
 
     public ResourceEntity(String s) {
+        this.resourceId = 0;
         this.value = s;
     }
 
     public ResourceEntity(boolean b) {
+        this.resourceId = 0;
         this.value = String.valueOf(b);
     }
 
     public ResourceEntity(long resourceId) {
         this.resourceId = resourceId;
+        this.value = null;
     }
 
     public long getResourceId() {
         return resourceId;
     }
 
-    public void setResourceId(long resourceId) {
-        this.resourceId = resourceId;
-    }
-
     public String getValue() {
         return value;
     }
 
-    public void setValue(String value) {
-        this.value = value;
-    }
-
     /**
      * get value as string
      */
@@ -62,9 +58,7 @@ public class ResourceEntity {
         if (this.value != null) {
             return this.value;
         }
-        String value = ParseUtils.getResourceById(this.resourceId, resourceTable, locale);
-        this.value = value;
-        return value;
+        return ParseUtils.getResourceById(this.resourceId, resourceTable, locale);
     }
 
     @Override
@@ -1,22 +1,235 @@
 package apk.parser.struct;
 
+import apk.parser.utils.ParallelDecoder;
+import apk.parser.utils.ParseUtils;
+import apk.parser.utils.StringInterner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * String pool.
+ * A pool read from a string pool chunk keeps the chunk data and string offsets, and decodes one string
+ * the first time it is got. A raw pool does not keep decoded strings at all, strings can be read and compared
+ * as CharSequence views of the encoded data.
  *
  * @author dongliu
  */
 public class StringPool {
-    private String[] pool;
+    // decoded strings, null for raw pool
+    private final String[] pool;
+
+    // the strings data, null if all strings are set
+    private final ByteBuffer buffer;
+    // offset of each string in buffer
+    private final int[] offsets;
+    private final boolean utf8;
+    // strings are sorted by value(compare as utf-16 code units)
+    private final boolean sorted;
+    // if not null, decoded strings are interned by it
+    private StringInterner interner;
 
     public StringPool(int poolSize) {
         pool = new String[poolSize];
+        this.buffer = null;
+        this.offsets = null;
+        this.utf8 = false;
+        this.sorted = false;
+    }
+
+    /**
+     * a lazy string pool
+     *
+     * @param buffer  the buffer contains strings data, little endian
+     * @param offsets offset of each string in buffer
+     * @param utf8    utf-8 strings if true, otherwise utf-16
+     * @param sorted  if strings are sorted by value
+     */
+    public StringPool(ByteBuffer buffer, int[] offsets, boolean utf8, boolean sorted) {
+        this(buffer, offsets, utf8, sorted, true);
+    }
+
+    /**
+     * @param memoize if false, this is a raw pool, strings are decoded every time they are got
+     */
+    public StringPool(ByteBuffer buffer, int[] offsets, boolean utf8, boolean sorted, boolean memoize) {
+        this.pool = memoize ? new String[offsets.length] : null;
+        this.buffer = buffer;
+        this.offsets = offsets;
+        this.utf8 = utf8;
+        this.sorted = sorted;
     }
 
     public String get(int idx) {
-        return pool[idx];
+        if (pool == null) {
+            String str = decode(idx);
+            return interner == null ? str : interner.intern(str);
+        }
+        String str = pool[idx];
+        if (str == null && buffer != null) {
+            // strings are immutable, decode the same string by two threads is harmless
+            str = decode(idx);
+            if (interner != null) {
+                str = interner.intern(str);
+            }
+            pool[idx] = str;
+        }
+        return str;
+    }
+
+    /**
+     * get string without decoding it if possible. For utf-16 strings and ascii utf-8 strings,
+     * this returns a view reading chars from the pool data; otherwise the decoded string.
+     */
+    public CharSequence getCharSequence(int idx) {
+        if (pool != null && pool[idx] != null || buffer == null) {
+            return pool[idx];
+        }
+        ByteBuffer b = buffer.duplicate();
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        b.position(offsets[idx]);
+        if (utf8) {
+            int strLen = ParseUtils.readLen(b);
+            int bytesLen = ParseUtils.readLen(b);
+            // multi-byte chars take more bytes than chars
+            if (strLen != bytesLen) {
+                return get(idx);
+            }
+            return new EncodedCharSequence(b, b.position(), strLen, false);
+        }
+        int strLen = ParseUtils.readLen16(b);
+        return new EncodedCharSequence(b, b.position(), strLen, true);
+    }
+
+    /**
+     * compare the string at idx to str, as utf-16 code units, without decoding the string if possible.
+     * Null string is less than any string.
+     */
+    public int compareTo(int idx, CharSequence str) {
+        CharSequence cs = getCharSequence(idx);
+        if (cs == null) {
+            return -1;
+        }
+        int len = Math.min(cs.length(), str.length());
+        for (int i = 0; i < len; i++) {
+            int d = cs.charAt(i) - str.charAt(i);
+            if (d != 0) {
+                return d;
+            }
+        }
+        return cs.length() - str.length();
+    }
+
+    /**
+     * if the string at idx equals str, without decoding the string if possible.
+     */
+    public boolean contentEquals(int idx, CharSequence str) {
+        CharSequence cs = getCharSequence(idx);
+        return cs != null && cs.length() == str.length() && compareTo(idx, str) == 0;
+    }
+
+    /**
+     * decode and keep all strings now, for callers going to read most of the strings. Strings are decoded on
+     * first access otherwise, no parser calls this. pools with at least parallelThreshold strings are decoded
+     * in parallel, see {@link ParallelDecoder#DEFAULT_THRESHOLD}.
+     * Strings with same offset share one instance, as long as they are adjacent.
+     */
+    public void decodeAll(int parallelThreshold) {
+        if (pool == null || buffer == null) {
+            return;
+        }
+        if (pool.length < parallelThreshold) {
+            decodeRange(0, pool.length);
+            return;
+        }
+        ParallelDecoder.decode(pool.length, new ParallelDecoder.RangeDecoder() {
+            @Override
+            public void decode(int from, int to) {
+                decodeRange(from, to);
+            }
+        });
+        // the first string of each range is always decoded, share it if same as the last of previous range
+        for (int i = 1; i < pool.length; i++) {
+            if (offsets[i] == offsets[i - 1]) {
+                pool[i] = pool[i - 1];
+            }
+        }
+    }
+
+    private void decodeRange(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (i > from && offsets[i] == offsets[i - 1]) {
+                pool[i] = get(i - 1);
+            } else {
+                get(i);
+            }
+        }
+    }
+
+    private String decode(int idx) {
+        ByteBuffer b = buffer.duplicate();
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        b.position(offsets[idx]);
+        return ParseUtils.readString(b, utf8);
     }
 
     public void set(int idx, String value) {
+        if (pool == null) {
+            throw new UnsupportedOperationException("Can not set string of raw pool");
+        }
         pool[idx] = value;
     }
+
+    public int size() {
+        return offsets == null ? pool.length : offsets.length;
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * find the first index of a string. The same string may be at more than one index.
+     * binary search is used if pool is sorted, otherwise strings are compared one by one; strings are compared
+     * in the pool data, without decoding them if possible.
+     *
+     * @return the index, -1 if not found
+     */
+    public int indexOf(String str) {
+        if (sorted) {
+            int low = 0;
+            int high = size() - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compareTo(mid, str);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else {
+                    if (cmp == 0) {
+                        found = mid;
+                    }
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+        for (int i = 0; i < size(); i++) {
+            if (contentEquals(i, str)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public StringInterner getInterner() {
+        return interner;
+    }
+
+    /**
+     * intern strings decoded after this call
+     */
+    public void setInterner(StringInterner interner) {
+        this.interner = interner;
+    }
 }
@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Resource packge.
@@ -28,7 +29,10 @@ public class ResourcePackage {
 
     private Map<Short, TypeSpec> typeSpecMap = new HashMap<Short,TypeSpec>();
 
-    private Map<Short, List<Type>> typesMap = new HashMap<Short,List<Type>>();
+    private Map<Short, List<Type>> typesMap = new ConcurrentHashMap<Short,List<Type>>();
+
+    // if not null, types are read from type chunks when first queried
+    private TypeChunkIndex typeChunkIndex;
 
     public void addTypeSpec(TypeSpec typeSpec) {
         this.typeSpecMap.put(typeSpec.getId(), typeSpec);
@@ -48,7 +52,39 @@ public class ResourcePackage {
     }
 
     public List<Type> getTypes(Short id) {
-        return this.typesMap.get(id);
+        List<Type> types = this.typesMap.get(id);
+        if (types == null && typeChunkIndex != null) {
+            synchronized (this) {
+                types = this.typesMap.get(id);
+                if (types == null) {
+                    types = typeChunkIndex.getTypes(id, getTypeName(id), keyStringPool);
+                    this.typesMap.put(id, types);
+                }
+            }
+        }
+        return types == null || types.isEmpty() ? null : types;
+    }
+
+    /**
+     * get the type of one chunk in type chunk index, only this chunk is read.
+     *
+     * @param chunk the chunk index, see {@link TypeChunkIndex#findChunks(short, int)}
+     */
+    public Type getIndexedType(int chunk) {
+        short id = typeChunkIndex.getTypeId(chunk);
+        return typeChunkIndex.getType(chunk, getTypeName(id), keyStringPool);
+    }
+
+    private String getTypeName(short id) {
+        return id > 0 && id <= typeStringPool.size() ? typeStringPool.get(id - 1) : null;
+    }
+
+    public TypeChunkIndex getTypeChunkIndex() {
+        return typeChunkIndex;
+    }
+
+    public void setTypeChunkIndex(TypeChunkIndex typeChunkIndex) {
+        this.typeChunkIndex = typeChunkIndex;
     }
 
     public String getName() {
@@ -12,6 +12,7 @@ import java.util.Map;
 public class ResourceTable {
     private Map<Short, ResourcePackage> packageMap = new HashMap<Short,ResourcePackage>();
     private StringPool stringPool;
+    private ResourceValueCache valueCache = new ResourceValueCache();
 
     public static Map<Integer, String> sysStyle = ResourceLoader.loadSystemStyles();
 
@@ -30,4 +31,15 @@ public class ResourceTable {
     public void setStringPool(StringPool stringPool) {
         this.stringPool = stringPool;
     }
+
+    /**
+     * the cache of resolved values, by resource id and locale
+     */
+    public ResourceValueCache getValueCache() {
+        return valueCache;
+    }
+
+    public void setValueCache(ResourceValueCache valueCache) {
+        this.valueCache = valueCache;
+    }
 }
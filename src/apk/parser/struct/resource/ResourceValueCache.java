@@ -0,0 +1,113 @@
+package apk.parser.struct.resource;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of resolved resource values, keyed by resource id and locale.
+ * Least recently used values are evicted when cache is full. Can be used by multiple threads.
+ *
+ * @author dongliu
+ */
+public class ResourceValueCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private final int maxSize;
+    private final Map<Key, String> map;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public ResourceValueCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public ResourceValueCache(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize should be positive:" + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<Key, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the cached value, null if not cached
+     */
+    public String get(long resourceId, Locale locale) {
+        String value;
+        synchronized (map) {
+            value = map.get(new Key(resourceId, locale));
+        }
+        if (value == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    public void put(long resourceId, Locale locale, String value) {
+        if (value == null) {
+            return;
+        }
+        synchronized (map) {
+            map.put(new Key(resourceId, locale), value);
+        }
+    }
+
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private static class Key {
+        private final long resourceId;
+        private final Locale locale;
+
+        private Key(long resourceId, Locale locale) {
+            this.resourceId = resourceId;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return resourceId == key.resourceId
+                    && (locale == null ? key.locale == null : locale.equals(key.locale));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (resourceId ^ (resourceId >>> 32));
+            return 31 * result + (locale != null ? locale.hashCode() : 0);
+        }
+    }
+}
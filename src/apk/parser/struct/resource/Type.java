@@ -27,6 +27,11 @@ public class Type {
         this.locale = new Locale(header.getConfig().getLanguage(), header.getConfig().getCountry());
     }
 
+    public Type(short id, Locale locale) {
+        this.id = id;
+        this.locale = locale;
+    }
+
     public ResourceEntry getResourceEntry(int id) {
         if (id >= offsets.length) {
             return null;
@@ -36,12 +41,14 @@ public class Type {
             return null;
         }
 
-        // read Resource Entries
+        // read Resource Entries. use a duplicate so that entries can be read by multi threads
+        ByteBuffer buffer = this.buffer.duplicate();
+        buffer.order(this.buffer.order());
         buffer.position((int) offsets[id]);
-        return readResourceEntry();
+        return readResourceEntry(buffer);
     }
 
-    private ResourceEntry readResourceEntry() {
+    private ResourceEntry readResourceEntry(ByteBuffer buffer) {
         long beginPos = buffer.position();
         ResourceEntry resourceEntry = new ResourceEntry();
         // size is always 8(simple), or 16(complex)
@@ -62,7 +69,7 @@ public class Type {
             //An individual complex Resource entry comprises an entry immediately followed by one or more fields.
             ResourceTableMap[] resourceTableMaps = new ResourceTableMap[(int) resourceMapEntry.getCount()];
             for (int i = 0; i < resourceMapEntry.getCount(); i++) {
-                resourceTableMaps[i] = readResourceTableMap();
+                resourceTableMaps[i] = readResourceTableMap(buffer);
             }
 
             resourceMapEntry.setResourceTableMaps(resourceTableMaps);
@@ -74,7 +81,7 @@ public class Type {
         }
     }
 
-    private ResourceTableMap readResourceTableMap() {
+    private ResourceTableMap readResourceTableMap(ByteBuffer buffer) {
         ResourceTableMap resourceTableMap = new ResourceTableMap();
         resourceTableMap.setNameRef(Buffers.readUInt(buffer));
         resourceTableMap.setResValue(ParseUtils.readResValue(buffer, stringPool));
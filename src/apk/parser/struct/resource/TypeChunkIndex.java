@@ -0,0 +1,252 @@
+package apk.parser.struct.resource;
+
+import apk.parser.struct.StringPool;
+import apk.parser.utils.Buffers;
+import apk.parser.utils.ParseUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Position of the type chunks of one package, for read Type on demand.
+ * Type id, chunk offset and the locale of config are kept for each chunk in int arrays, the chunks of one
+ * type id are found by range; the full config is decoded only when asked for. A Type is read from one chunk
+ * only when that (type, config) is asked for, and kept afterwards. Can be used by multiple threads
+ * once all chunks are added.
+ *
+ * @author dongliu
+ */
+public class TypeChunkIndex {
+
+    // chunk header(8), id(1), res0(1), res1(2), entryCount(4), entriesStart(4), then config
+    private static final int ENTRY_COUNT_OFFSET = 12;
+    private static final int ENTRIES_START_OFFSET = 16;
+    private static final int CONFIG_OFFSET = 20;
+    // config: size(4), mcc(2), mnc(2), language(2), country(2)
+    private static final int CONFIG_LOCALE_OFFSET = 8;
+    private static final int MAX_TYPE_ID = 0xff;
+
+    // the resource table buffer, little endian
+    private final ByteBuffer buffer;
+    // the global string pool of resource table
+    private final StringPool stringPool;
+
+    private int size;
+    private int[] typeIds = new int[16];
+    // offset of the chunk header in buffer
+    private int[] chunkOffsets = new int[16];
+    // index of the chunk locale in distinct locales
+    private int[] localeIndexes = new int[16];
+    private final List<Locale> distinctLocales = new ArrayList<Locale>();
+    // language and country bytes packed in int, of distinct locales. a table has a few dozen locales at most
+    private int[] localeCodes = new int[8];
+
+    // chunks of type id are in [typeStarts[id], typeEnds[id]), as aapt writes them together
+    private final int[] typeStarts = new int[MAX_TYPE_ID + 1];
+    private final int[] typeEnds = new int[MAX_TYPE_ID + 1];
+    // false if chunks of one type id are not together, chunks are then scanned
+    private boolean grouped = true;
+
+    // types read, by chunk
+    private volatile AtomicReferenceArray<Type> types;
+
+    public TypeChunkIndex(ByteBuffer buffer, StringPool stringPool) {
+        this.buffer = buffer.duplicate();
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.stringPool = stringPool;
+    }
+
+    /**
+     * add one type chunk. only the locale is read from the config
+     *
+     * @param chunkOffset the offset of chunk header
+     */
+    public void add(short typeId, int chunkOffset) {
+        if (size == typeIds.length) {
+            typeIds = Arrays.copyOf(typeIds, size * 2);
+            chunkOffsets = Arrays.copyOf(chunkOffsets, size * 2);
+            localeIndexes = Arrays.copyOf(localeIndexes, size * 2);
+        }
+        typeIds[size] = typeId;
+        chunkOffsets[size] = chunkOffset;
+        localeIndexes[size] = localeIndex(chunkOffset);
+
+        if (typeEnds[typeId] == 0) {
+            typeStarts[typeId] = size;
+        } else if (typeEnds[typeId] != size) {
+            grouped = false;
+        }
+        typeEnds[typeId] = size + 1;
+        size++;
+        types = null;
+    }
+
+    private int localeIndex(int chunkOffset) {
+        int configOffset = chunkOffset + CONFIG_OFFSET;
+        long configSize = buffer.getInt(configOffset) & 0xffffffffL;
+        int code = configSize >= CONFIG_LOCALE_OFFSET + 4 ? buffer.getInt(configOffset + CONFIG_LOCALE_OFFSET) : 0;
+        int count = distinctLocales.size();
+        for (int i = 0; i < count; i++) {
+            if (localeCodes[i] == code) {
+                return i;
+            }
+        }
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            bytes[i] = (byte) (code >> (i * 8));
+        }
+        String language = new String(bytes, 0, 2).replace("\0", "");
+        String country = new String(bytes, 2, 2).replace("\0", "");
+        if (count == localeCodes.length) {
+            localeCodes = Arrays.copyOf(localeCodes, count * 2);
+        }
+        localeCodes[count] = code;
+        distinctLocales.add(new Locale(language, country));
+        return count;
+    }
+
+    /**
+     * the count of chunks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * the locales of all type chunks
+     */
+    public Set<Locale> getLocales() {
+        return new HashSet<Locale>(distinctLocales);
+    }
+
+    /**
+     * the chunks with the type id, in chunk order
+     *
+     * @return the chunk indexes in this index
+     */
+    public int[] findChunks(short typeId) {
+        return findChunks(typeId, -1);
+    }
+
+    /**
+     * the chunks with the type id which hold the entry, in chunk order. the entry offsets table of each chunk
+     * is checked in place, no type is read.
+     *
+     * @param entryIndex the entry index, -1 for all chunks of the type
+     * @return the chunk indexes in this index
+     */
+    public int[] findChunks(short typeId, int entryIndex) {
+        if (typeId < 0 || typeId > MAX_TYPE_ID) {
+            return new int[0];
+        }
+        int start = grouped ? typeStarts[typeId] : 0;
+        int end = grouped ? typeEnds[typeId] : size;
+        int[] found = new int[Math.max(end - start, 0)];
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (typeIds[i] != typeId || entryIndex >= 0 && !hasEntry(i, entryIndex)) {
+                continue;
+            }
+            found[count++] = i;
+        }
+        return count == found.length ? found : Arrays.copyOf(found, count);
+    }
+
+    private boolean hasEntry(int chunk, int entryIndex) {
+        int chunkOffset = chunkOffsets[chunk];
+        long entryCount = buffer.getInt(chunkOffset + ENTRY_COUNT_OFFSET) & 0xffffffffL;
+        if (entryIndex >= entryCount) {
+            return false;
+        }
+        int headerSize = buffer.getShort(chunkOffset + 2) & 0xffff;
+        long offset = buffer.getInt(chunkOffset + headerSize + entryIndex * 4) & 0xffffffffL;
+        return offset != TypeHeader.NO_ENTRY;
+    }
+
+    public short getTypeId(int chunk) {
+        return (short) typeIds[chunk];
+    }
+
+    /**
+     * the config of the chunk, decoded from the chunk header on each call
+     */
+    public ResTableConfig getConfig(int chunk) {
+        ByteBuffer b = buffer.duplicate();
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        b.position(chunkOffsets[chunk] + CONFIG_OFFSET);
+        return ParseUtils.readResTableConfig(b);
+    }
+
+    public Locale getLocale(int chunk) {
+        return distinctLocales.get(localeIndexes[chunk]);
+    }
+
+    /**
+     * get the type of one chunk, read when first got. Concurrent callers may read the chunk more than once,
+     * only one type is kept.
+     */
+    public Type getType(int chunk, String name, StringPool keyStringPool) {
+        AtomicReferenceArray<Type> types = this.types;
+        if (types == null) {
+            synchronized (this) {
+                if (this.types == null) {
+                    this.types = new AtomicReferenceArray<Type>(size);
+                }
+                types = this.types;
+            }
+        }
+        Type type = types.get(chunk);
+        if (type == null) {
+            types.compareAndSet(chunk, null, readType(chunk, name, keyStringPool));
+            type = types.get(chunk);
+        }
+        return type;
+    }
+
+    /**
+     * get all types(of all configs) with the type id.
+     *
+     * @return the types, empty list if no chunk has this type id
+     */
+    public List<Type> getTypes(short typeId, String name, StringPool keyStringPool) {
+        List<Type> list = new ArrayList<Type>();
+        for (int chunk : findChunks(typeId)) {
+            list.add(getType(chunk, name, keyStringPool));
+        }
+        return list;
+    }
+
+    private Type readType(int i, String name, StringPool keyStringPool) {
+        ByteBuffer b = buffer.duplicate();
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        int chunkOffset = chunkOffsets[i];
+        int headerSize = b.getShort(chunkOffset + 2) & 0xffff;
+        long entryCount = b.getInt(chunkOffset + ENTRY_COUNT_OFFSET) & 0xffffffffL;
+        long entriesStart = b.getInt(chunkOffset + ENTRIES_START_OFFSET) & 0xffffffffL;
+
+        // read offsets table
+        b.position(chunkOffset + headerSize);
+        long[] offsets = new long[(int) entryCount];
+        for (int j = 0; j < entryCount; j++) {
+            offsets[j] = Buffers.readUInt(b);
+        }
+
+        Type type = new Type((short) typeIds[i], getLocale(i));
+        type.setName(name);
+        b.position((int) (chunkOffset + entriesStart));
+        ByteBuffer entries = b.slice();
+        entries.order(ByteOrder.LITTLE_ENDIAN);
+        type.setBuffer(entries);
+        type.setKeyStringPool(keyStringPool);
+        type.setOffsets(offsets);
+        type.setStringPool(stringPool);
+        return type;
+    }
+}
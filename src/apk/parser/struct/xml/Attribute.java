@@ -15,12 +15,26 @@ import java.util.Map;
 public class Attribute {
     private String namespace;
     private String name;
+    // the framework attribute resource id from xml resource map, such as 0x0101021b for versionCode. 0 if not has
+    private long resourceId;
     // The original raw string value of this 
     private String rawValue;
     // Processed typed value of this
     private ResourceEntity typedValue;
-    // the final value as string
+    // the final value as string, resolved from rawValue or typed value when first got
     private String value;
+    // the typed value as stored in chunk: data type and data
+    private short dataType;
+    private int data;
+    // if not null, value is resolved by it when first got
+    private ValueResolver valueResolver;
+
+    /**
+     * resolve attribute value to string when it is asked for
+     */
+    public interface ValueResolver {
+        String resolve(Attribute attribute);
+    }
 
     public String toStringValue(ResourceTable resourceTable, Locale locale) {
         if (rawValue != null) {
@@ -40,6 +54,26 @@ public class Attribute {
      */
     public static class AttrIds {
 
+        public static final int LABEL = 0x01010001;
+        public static final int ICON = 0x01010002;
+        public static final int NAME = 0x01010003;
+        public static final int PROTECTION_LEVEL = 0x01010009;
+        public static final int EXPORTED = 0x01010010;
+        public static final int DESCRIPTION = 0x01010020;
+        public static final int VALUE = 0x01010024;
+        public static final int MIN_SDK_VERSION = 0x0101020c;
+        public static final int VERSION_CODE = 0x0101021b;
+        public static final int VERSION_NAME = 0x0101021c;
+        public static final int ANY_DENSITY = 0x0101026c;
+        public static final int TARGET_SDK_VERSION = 0x01010270;
+        public static final int MAX_SDK_VERSION = 0x01010271;
+        public static final int GL_ES_VERSION = 0x01010281;
+        public static final int SMALL_SCREENS = 0x01010284;
+        public static final int NORMAL_SCREENS = 0x01010285;
+        public static final int LARGE_SCREENS = 0x01010286;
+        public static final int REQUIRED = 0x0101028e;
+        public static final int INSTALL_LOCATION = 0x010102b7;
+
         private static final Map<Integer, String> ids = ResourceLoader.loadSystemAttrIds();
 
         public static String getString(long id) {
@@ -68,6 +102,14 @@ public class Attribute {
         this.name = name;
     }
 
+    public long getResourceId() {
+        return resourceId;
+    }
+
+    public void setResourceId(long resourceId) {
+        this.resourceId = resourceId;
+    }
+
     public String getRawValue() {
         return rawValue;
     }
@@ -85,6 +127,9 @@ public class Attribute {
     }
 
     public String getValue() {
+        if (value == null && valueResolver != null) {
+            value = valueResolver.resolve(this);
+        }
         return value;
     }
 
@@ -92,6 +137,36 @@ public class Attribute {
         this.value = value;
     }
 
+    /**
+     * the data type of typed value, see {@link apk.parser.struct.ResValue.ResType}
+     */
+    public short getDataType() {
+        return dataType;
+    }
+
+    public void setDataType(short dataType) {
+        this.dataType = dataType;
+    }
+
+    /**
+     * the data of typed value, as stored in binary xml
+     */
+    public int getData() {
+        return data;
+    }
+
+    public void setData(int data) {
+        this.data = data;
+    }
+
+    public ValueResolver getValueResolver() {
+        return valueResolver;
+    }
+
+    public void setValueResolver(ValueResolver valueResolver) {
+        this.valueResolver = valueResolver;
+    }
+
     @Override
     public String toString() {
         return "Attribute{" +
@@ -1,5 +1,9 @@
 package apk.parser.struct.xml;
 
+import apk.parser.struct.ResValue;
+
+import java.util.Arrays;
+
 /**
  * xml node attributes
  *
@@ -8,6 +12,9 @@ package apk.parser.struct.xml;
 public class Attributes {
 
     private final Attribute[] attributes;
+    // resource ids of attributes which has one, sorted; and the attribute indexes. built when first looked up
+    private long[] resourceIds;
+    private int[] resourceIdIndexes;
 
     public Attributes(int size) {
         this.attributes = new Attribute[size];
@@ -15,17 +22,80 @@ public class Attributes {
 
     public void set(int i, Attribute attribute) {
         attributes[i] = attribute;
+        resourceIds = null;
+        resourceIdIndexes = null;
     }
 
     public String get(String name) {
+        Attribute attribute = getAttribute(name);
+        return attribute == null ? null : attribute.getValue();
+    }
+
+    /**
+     * get attribute value by framework resource id, or by name if no attribute has the resource id.
+     * The id lookup also works for apks whose attribute names are removed from string pool.
+     *
+     * @param resourceId the attribute resource id, see {@link Attribute.AttrIds}
+     */
+    public String get(long resourceId, String name) {
+        Attribute attribute = getAttribute(resourceId, name);
+        return attribute == null ? null : attribute.getValue();
+    }
+
+    public Attribute getAttribute(String name) {
         for (Attribute attribute : attributes) {
             if (attribute.getName().equals(name)) {
-                return attribute.getValue();
+                return attribute;
             }
         }
         return null;
     }
 
+    /**
+     * get attribute by framework resource id, or by name if no attribute has the resource id.
+     */
+    public Attribute getAttribute(long resourceId, String name) {
+        if (resourceId != 0) {
+            if (resourceIds == null) {
+                indexResourceIds();
+            }
+            int idx = Arrays.binarySearch(resourceIds, resourceId);
+            if (idx >= 0) {
+                // the first attribute with the id, as ids may repeat
+                while (idx > 0 && resourceIds[idx - 1] == resourceId) {
+                    idx--;
+                }
+                return attributes[resourceIdIndexes[idx]];
+            }
+        }
+        return getAttribute(name);
+    }
+
+    /**
+     * sort the resource ids by insertion, aapt already writes attributes in resource id order.
+     */
+    private void indexResourceIds() {
+        long[] ids = new long[attributes.length];
+        int[] indexes = new int[attributes.length];
+        int count = 0;
+        for (int i = 0; i < attributes.length; i++) {
+            long id = attributes[i].getResourceId();
+            if (id == 0) {
+                continue;
+            }
+            int j = count++;
+            while (j > 0 && ids[j - 1] > id) {
+                ids[j] = ids[j - 1];
+                indexes[j] = indexes[j - 1];
+                j--;
+            }
+            ids[j] = id;
+            indexes[j] = i;
+        }
+        resourceIdIndexes = indexes;
+        resourceIds = Arrays.copyOf(ids, count);
+    }
+
     public int size() {
         return attributes.length;
     }
@@ -45,8 +115,56 @@ public class Attributes {
         return value == null ? null : Long.valueOf(value);
     }
 
+    /**
+     * get int value from the typed data directly. values of other types(such as reference) are resolved and parsed.
+     *
+     * @return the value, null if attribute not exists
+     */
+    public Integer getIntValue(long resourceId, String name) {
+        Attribute attribute = getAttribute(resourceId, name);
+        if (attribute == null) {
+            return null;
+        }
+        if (isIntType(attribute) && attribute.getRawValue() == null) {
+            return attribute.getData();
+        }
+        return Integer.valueOf(attribute.getValue());
+    }
+
+    /**
+     * get boolean value from the typed data directly. values of other types(such as reference) are resolved and parsed.
+     */
+    public boolean getBooleanValue(long resourceId, String name, boolean b) {
+        Attribute attribute = getAttribute(resourceId, name);
+        if (attribute == null) {
+            return b;
+        }
+        if (attribute.getDataType() == ResValue.ResType.INT_BOOLEAN && attribute.getRawValue() == null) {
+            return attribute.getData() != 0;
+        }
+        String value = attribute.getValue();
+        return value == null ? b : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * the referenced resource id, if attribute value is a reference.
+     *
+     * @return the resource id, null if attribute not exists or is not a reference
+     */
+    public Long getReference(long resourceId, String name) {
+        Attribute attribute = getAttribute(resourceId, name);
+        if (attribute == null || attribute.getDataType() != ResValue.ResType.REFERENCE) {
+            return null;
+        }
+        return attribute.getData() & 0xffffffffL;
+    }
+
+    private static boolean isIntType(Attribute attribute) {
+        return attribute.getDataType() >= ResValue.ResType.FIRST_INT
+                && attribute.getDataType() <= ResValue.ResType.LAST_INT;
+    }
+
     public Attribute[] value() {
         return this.attributes;
     }
 }
-
@@ -6,6 +6,8 @@ package apk.parser.struct.xml;
 public class XmlNodeEndTag {
     private String namespace;
     private String name;
+    // index of name in string pool of the xml file, -1 if unknown
+    private int nameIndex = -1;
 
     public String getNamespace() {
         return namespace;
@@ -23,6 +25,18 @@ public class XmlNodeEndTag {
         this.name = name;
     }
 
+    /**
+     * the index of tag name in string pool of the xml file, -1 if unknown.
+     * Same names have same index in one xml file, so tags can be matched by index.
+     */
+    public int getNameIndex() {
+        return nameIndex;
+    }
+
+    public void setNameIndex(int nameIndex) {
+        this.nameIndex = nameIndex;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -6,6 +6,8 @@ package apk.parser.struct.xml;
 public class XmlNodeStartTag {
     private String namespace;
     private String name;
+    // index of name in string pool of the xml file, -1 if unknown
+    private int nameIndex = -1;
 
     // Byte offset from the start of this structure where the attributes start. uint16
     //public int attributeStart;
@@ -37,6 +39,18 @@ public class XmlNodeStartTag {
         this.name = name;
     }
 
+    /**
+     * the index of tag name in string pool of the xml file, -1 if unknown.
+     * Same names have same index in one xml file, so tags can be matched by index.
+     */
+    public int getNameIndex() {
+        return nameIndex;
+    }
+
+    public void setNameIndex(int nameIndex) {
+        this.nameIndex = nameIndex;
+    }
+
     public Attributes getAttributes() {
         return attributes;
     }
@@ -0,0 +1,99 @@
+package apk.parser.struct.zip;
+
+/**
+ * One file header record of the zip central directory.
+ * see https://pkware.cachefly.net/webdocs/casestudies/APPNOTE.TXT 4.3.12
+ *
+ * @author dongliu
+ */
+public class CentralDirectoryEntry {
+
+    // the entry data is not compressed
+    public static final int METHOD_STORED = 0;
+    // the entry data is compressed with raw deflate
+    public static final int METHOD_DEFLATED = 8;
+
+    private String name;
+    // general purpose bit flag. uint16
+    private int flags;
+    // compression method. uint16
+    private int method;
+    // crc-32 of the uncompressed data. uint32
+    private long crc;
+    // compressed size. uint32
+    private long compressedSize;
+    // uncompressed size. uint32
+    private long uncompressedSize;
+    // offset of the local file header, from the start of the archive. uint32
+    private long localHeaderOffset;
+
+    public boolean isDirectory() {
+        return name.endsWith("/");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public void setFlags(int flags) {
+        this.flags = flags;
+    }
+
+    public int getMethod() {
+        return method;
+    }
+
+    public void setMethod(int method) {
+        this.method = method;
+    }
+
+    public long getCrc() {
+        return crc;
+    }
+
+    public void setCrc(long crc) {
+        this.crc = crc;
+    }
+
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    public void setCompressedSize(long compressedSize) {
+        this.compressedSize = compressedSize;
+    }
+
+    public long getUncompressedSize() {
+        return uncompressedSize;
+    }
+
+    public void setUncompressedSize(long uncompressedSize) {
+        this.uncompressedSize = uncompressedSize;
+    }
+
+    public long getLocalHeaderOffset() {
+        return localHeaderOffset;
+    }
+
+    public void setLocalHeaderOffset(long localHeaderOffset) {
+        this.localHeaderOffset = localHeaderOffset;
+    }
+
+    @Override
+    public String toString() {
+        return "CentralDirectoryEntry{" +
+                "name='" + name + '\'' +
+                ", method=" + method +
+                ", compressedSize=" + compressedSize +
+                ", uncompressedSize=" + uncompressedSize +
+                '}';
+    }
+}
@@ -1,6 +1,9 @@
 package apk.parser.utils;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
 
 /**
  * utils method for byte buffer
@@ -9,6 +12,12 @@ import java.nio.ByteBuffer;
  */
 public class Buffers {
 
+    private static final Charset charsetUTF16LE = Charset.forName("UTF-16LE");
+    private static final Charset charsetUTF16BE = Charset.forName("UTF-16BE");
+    private static final Charset charsetUTF8 = Charset.forName("UTF-8");
+    // utf16 strings shorter than this are read char by char
+    private static final int MIN_BULK_UTF16_LEN = 32;
+
     /**
      * get one unsigned byte as short type
      */
@@ -45,15 +54,44 @@ public class Buffers {
 
     /**
      * read utf16 strings, use strLen, not ending 0 char.
+     * Long strings in heap buffers are decoded from the backing array, others char by char, which is faster
+     * for them (see bench StringDecodeBench).
      *
      * @param strLen
      */
     public static String readString(ByteBuffer buffer, int strLen) {
-        StringBuilder sb = new StringBuilder(strLen);
-        for (int i = 0; i < strLen; i++) {
-            sb.append(buffer.getChar());
+        if (strLen < MIN_BULK_UTF16_LEN || !buffer.hasArray()) {
+            StringBuilder sb = new StringBuilder(strLen);
+            for (int i = 0; i < strLen; i++) {
+                sb.append(buffer.getChar());
+            }
+            return sb.toString();
+        }
+        Charset charset = buffer.order() == ByteOrder.LITTLE_ENDIAN ? charsetUTF16LE : charsetUTF16BE;
+        return decode(buffer, strLen * 2, charset);
+    }
+
+    /**
+     * read utf8 strings of bytesLen bytes.
+     */
+    public static String readUTF8String(ByteBuffer buffer, int bytesLen) {
+        return decode(buffer, bytesLen, charsetUTF8);
+    }
+
+    /**
+     * decode len bytes from buffer, from the backing array directly if buffer has one.
+     */
+    private static String decode(ByteBuffer buffer, int len, Charset charset) {
+        if (buffer.hasArray()) {
+            int pos = buffer.position();
+            if (len > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            String str = new String(buffer.array(), buffer.arrayOffset() + pos, len, charset);
+            buffer.position(pos + len);
+            return str;
         }
-        return sb.toString();
+        return new String(readBytes(buffer, len), charset);
     }
 
     /**
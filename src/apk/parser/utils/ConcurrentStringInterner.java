@@ -0,0 +1,57 @@
+package apk.parser.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread-safe interner holding at most maxSize strings.
+ * Once full, new strings are returned as is and not kept; strings already held are still shared.
+ *
+ * @author dongliu
+ */
+public class ConcurrentStringInterner implements StringInterner {
+
+    public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+
+    // strings longer than this are not likely to be shared between apks
+    private static final int MAX_STRING_LENGTH = 256;
+
+    private final ConcurrentMap<String, String> map = new ConcurrentHashMap<String, String>();
+    private final int maxSize;
+
+    public ConcurrentStringInterner() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public ConcurrentStringInterner(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public String intern(String str) {
+        if (str.length() > MAX_STRING_LENGTH) {
+            return str;
+        }
+        String canonical = map.get(str);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (map.size() >= maxSize) {
+            return str;
+        }
+        canonical = map.putIfAbsent(str, str);
+        return canonical == null ? str : canonical;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void clear() {
+        map.clear();
+    }
+}
@@ -0,0 +1,116 @@
+package apk.parser.utils;
+
+import apk.parser.exception.ParserException;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Raw deflate decompression with per-thread reused Inflater.
+ * Inflater holds native zlib memory, create and end one for every entry is costly.
+ *
+ * @author dongliu
+ */
+public class Inflaters {
+
+    // input chunk size when inflating from a buffer without backing array
+    private static final int INPUT_CHUNK_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<Inflater> cachedInflater = new ThreadLocal<Inflater>();
+
+    /**
+     * get a nowrap inflater, the cached one of current thread if it is not in use.
+     * the inflater should be given back by {@link #release(Inflater)}.
+     */
+    public static Inflater obtain() {
+        Inflater inflater = cachedInflater.get();
+        if (inflater != null) {
+            cachedInflater.set(null);
+            return inflater;
+        }
+        return new Inflater(true);
+    }
+
+    /**
+     * reset the inflater and cache it for current thread, or end it if current thread already has one.
+     */
+    public static void release(Inflater inflater) {
+        if (cachedInflater.get() == null) {
+            inflater.reset();
+            cachedInflater.set(inflater);
+        } else {
+            inflater.end();
+        }
+    }
+
+    /**
+     * inflate raw deflate data into out, the out array should be of the exact uncompressed size.
+     *
+     * @param compressed the deflated data, from position to limit. position is moved.
+     * @throws ParserException if data is malformed or is not of the expected size.
+     */
+    public static void inflate(ByteBuffer compressed, byte[] out) {
+        byte[] in = compressed.hasArray() ? null
+                : new byte[Math.min(INPUT_CHUNK_SIZE, compressed.remaining())];
+        Inflater inflater = obtain();
+        try {
+            int count = 0;
+            while (count < out.length) {
+                if (inflater.needsInput() && !setInput(inflater, compressed, in)) {
+                    break;
+                }
+                int n = inflater.inflate(out, count, out.length - count);
+                if (n == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                    break;
+                }
+                count += n;
+            }
+            if (count != out.length) {
+                throw new ParserException("Inflated size " + count + " less than expected " + out.length);
+            }
+            // the out array is full, the deflate stream should end here
+            byte[] probe = new byte[1];
+            while (!inflater.finished()) {
+                if (inflater.needsInput() && !setInput(inflater, compressed, in)) {
+                    break;
+                }
+                if (inflater.inflate(probe) > 0) {
+                    throw new ParserException("Inflated size larger than expected " + out.length);
+                }
+                if (inflater.needsDictionary()) {
+                    break;
+                }
+            }
+            if (!inflater.finished()) {
+                throw new ParserException("Deflate data not finished after " + out.length + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new ParserException("Invalid deflate data", e);
+        } finally {
+            release(inflater);
+        }
+    }
+
+    /**
+     * pass next input to inflater.
+     *
+     * @param in the chunk array to copy input into, null if compressed has backing array
+     * @return false if no input remains
+     */
+    private static boolean setInput(Inflater inflater, ByteBuffer compressed, byte[] in) {
+        if (!compressed.hasRemaining()) {
+            return false;
+        }
+        if (in == null) {
+            inflater.setInput(compressed.array(), compressed.arrayOffset() + compressed.position(),
+                    compressed.remaining());
+            compressed.position(compressed.limit());
+        } else {
+            int len = Math.min(in.length, compressed.remaining());
+            compressed.get(in, 0, len);
+            inflater.setInput(in, 0, len);
+        }
+        return true;
+    }
+}
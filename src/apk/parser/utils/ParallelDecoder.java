@@ -0,0 +1,82 @@
+package apk.parser.utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decode index ranges of a large table(such as string pool) in parallel, on a fork-join pool.
+ * When called from a fork-join worker thread, the worker's pool is used; otherwise a shared pool
+ * with parallelism of available processors.
+ *
+ * @author dongliu
+ */
+public class ParallelDecoder {
+
+    /**
+     * tables with less items than this are better decoded in current thread
+     */
+    public static final int DEFAULT_THRESHOLD = 16 * 1024;
+
+    // the least items of one task
+    private static final int MIN_BATCH_SIZE = 1024;
+
+    /**
+     * decode items of one range. ranges are decoded concurrently, should not share mutable state.
+     */
+    public interface RangeDecoder {
+        /**
+         * decode items from index (inclusive) to index (exclusive)
+         */
+        void decode(int from, int to);
+    }
+
+    // pool created when first used. worker threads are daemon threads
+    private static class SharedPool {
+        private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * decode items [0, count), return after all ranges are decoded.
+     * Writes made by decoder are visible to the caller when this method returns.
+     */
+    public static void decode(int count, RangeDecoder decoder) {
+        Thread thread = Thread.currentThread();
+        ForkJoinPool pool = thread instanceof ForkJoinWorkerThread ? ((ForkJoinWorkerThread) thread).getPool()
+                : SharedPool.pool;
+        int batchSize = Math.max(MIN_BATCH_SIZE, count / (pool.getParallelism() * 4));
+        RangeTask task = new RangeTask(decoder, 0, count, batchSize);
+        if (thread instanceof ForkJoinWorkerThread) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // tasks are never serialized
+        private final transient RangeDecoder decoder;
+        private final int from;
+        private final int to;
+        private final int batchSize;
+
+        private RangeTask(RangeDecoder decoder, int from, int to, int batchSize) {
+            this.decoder = decoder;
+            this.from = from;
+            this.to = to;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batchSize) {
+                decoder.decode(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(decoder, from, mid, batchSize), new RangeTask(decoder, mid, to, batchSize));
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package apk.parser.utils;
 
+import apk.parser.struct.resource.ResTableConfig;
 import apk.parser.struct.resource.ResourceEntry;
 import apk.parser.struct.resource.ResourcePackage;
 import apk.parser.struct.resource.Type;
 import apk.parser.struct.resource.ResourceTable;
+import apk.parser.struct.resource.ResourceValueCache;
+import apk.parser.struct.resource.TypeChunkIndex;
 import apk.parser.struct.resource.TypeSpec;
 import apk.parser.struct.ResourceEntity;
 import apk.parser.struct.ResValue;
@@ -12,9 +15,9 @@ import apk.parser.struct.StringPoolHeader;
 import apk.parser.struct.StringPool;
 import apk.parser.bean.Locales;
 import apk.parser.exception.ParserException;
-import apk.parser.parser.StringPoolEntry;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Locale;
@@ -35,8 +38,7 @@ public class ParseUtils {
             // but using 8-bit rather than 16-bit integers.
             int strLen = readLen(buffer);
             int bytesLen = readLen(buffer);
-            byte[] bytes = Buffers.readBytes(buffer, bytesLen);
-            String str = new String(bytes, charsetUTF8);
+            String str = Buffers.readUTF8String(buffer, bytesLen);
             // zero
             int trailling = Buffers.readUByte(buffer);
             return str;
@@ -54,13 +56,13 @@ public class ParseUtils {
      * read utf-16 encoding str, use zero char to end str.
      */
     public static String readStringUTF16(ByteBuffer buffer, int strLen) {
-        String str = Buffers.readString(buffer, strLen);
-        for (int i = 0; i < str.length(); i++) {
-            char c = str.charAt(i);
-            if (c == 0) {
-                return str.substring(0, i);
-            }
+        int pos = buffer.position();
+        int len = 0;
+        while (len < strLen && buffer.getChar(pos + len * 2) != 0) {
+            len++;
         }
+        String str = Buffers.readString(buffer, len);
+        buffer.position(pos + strLen * 2);
         return str;
     }
 
@@ -68,7 +70,7 @@ public class ParseUtils {
      * read encoding len.
      * see StringPool.cpp ENCODE_LENGTH
      */
-    private static int readLen(ByteBuffer buffer) {
+    public static int readLen(ByteBuffer buffer) {
         int len = 0;
         int i = Buffers.readUByte(buffer);
         if ((i & 0x80) != 0) {
@@ -85,7 +87,7 @@ public class ParseUtils {
      * read encoding len.
      * see Stringpool.cpp ENCODE_LENGTH
      */
-    private static int readLen16(ByteBuffer buffer) {
+    public static int readLen16(ByteBuffer buffer) {
         int len = 0;
         int i = Buffers.readUShort(buffer);
         if ((i & 0x8000) != 0) {
@@ -100,16 +102,25 @@ public class ParseUtils {
 
     /**
      * read String pool, for apk binary xml file and resource table.
+     * strings are not decoded here, but when first got from the pool.
      */
     public static StringPool readStringPool(ByteBuffer buffer, StringPoolHeader stringPoolHeader) {
+        return readStringPool(buffer, stringPoolHeader, true);
+    }
+
+    /**
+     * read String pool.
+     *
+     * @param memoize if false, return a raw pool which keeps only the encoded data, see {@link StringPool}
+     */
+    public static StringPool readStringPool(ByteBuffer buffer, StringPoolHeader stringPoolHeader,
+                                            boolean memoize) {
 
         long beginPos = buffer.position();
-        long[] offsets = new long[(int) stringPoolHeader.getStringCount()];
+        int[] offsets = new int[(int) stringPoolHeader.getStringCount()];
         // read strings offset
-        if (stringPoolHeader.getStringCount() > 0) {
-            for (int idx = 0; idx < stringPoolHeader.getStringCount(); idx++) {
-                offsets[idx] = Buffers.readUInt(buffer);
-            }
+        for (int idx = 0; idx < offsets.length; idx++) {
+            offsets[idx] = buffer.getInt();
         }
         // read flag
         // the string index is sorted by the string values if true
@@ -117,37 +128,24 @@ public class ParseUtils {
         // string use utf-8 format if true, otherwise utf-16
         boolean utf8 = (stringPoolHeader.getFlags() & StringPoolHeader.UTF8_FLAG) != 0;
 
-        // read strings. the head and metas have 28 bytes
+        // strings data. the head and metas have 28 bytes
         long stringPos = beginPos + stringPoolHeader.getStringsStart() - stringPoolHeader.getHeaderSize();
-        buffer.position((int) stringPos);
-
-        StringPoolEntry[] entries = new StringPoolEntry[offsets.length];
-        for (int i = 0; i < offsets.length; i++) {
-            entries[i] = new StringPoolEntry(i, stringPos + offsets[i]);
-        }
-
-        String lastStr = null;
-        long lastOffset = -1;
-        StringPool stringPool = new StringPool((int) stringPoolHeader.getStringCount());
-        for (StringPoolEntry entry : entries) {
-            if (entry.getOffset() == lastOffset) {
-                stringPool.set(entry.getIdx(), lastStr);
-                continue;
-            }
-
-            buffer.position((int) entry.getOffset());
-            lastOffset = entry.getOffset();
-            String str = ParseUtils.readString(buffer, utf8);
-            lastStr = str;
-            stringPool.set(entry.getIdx(), str);
+        long endPos = beginPos + stringPoolHeader.getBodySize();
+        ByteBuffer b = buffer.duplicate();
+        if (offsets.length > 0) {
+            b.limit((int) endPos);
+            b.position((int) stringPos);
+            b = b.slice();
         }
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        StringPool stringPool = new StringPool(b, offsets, utf8, sorted, memoize);
 
         // read styles
         if (stringPoolHeader.getStyleCount() > 0) {
             // now we just skip it
         }
 
-        buffer.position((int) (beginPos + stringPoolHeader.getBodySize()));
+        buffer.position((int) endPos);
 
         return stringPool;
     }
@@ -156,7 +154,10 @@ public class ParseUtils {
      * method to read resource value RGB/ARGB type.
      */
     public static String readRGBs(ByteBuffer buffer, int strLen) {
-        long l = Buffers.readUInt(buffer);
+        return toRGBs(Buffers.readUInt(buffer), strLen);
+    }
+
+    private static String toRGBs(long l, int strLen) {
         StringBuilder sb = new StringBuilder();
         for (int i = strLen / 2 - 1; i >= 0; i--) {
             sb.append(Integer.toHexString((int) ((l >> i * 8) & 0xff)));
@@ -168,55 +169,52 @@ public class ParseUtils {
      * read res value, convert from different types to string.
      */
     public static ResourceEntity readResValue(ByteBuffer buffer, StringPool stringPool) {
-        ResValue resValue = new ResValue();
-        resValue.setSize(Buffers.readUShort(buffer));
-        resValue.setRes0(Buffers.readUByte(buffer));
-        resValue.setDataType(Buffers.readUByte(buffer));
+        // size(2), res0(1)
+        Buffers.skip(buffer, 3);
+        short dataType = Buffers.readUByte(buffer);
+        return toResourceEntity(dataType, buffer.getInt(), stringPool);
+    }
 
-        switch (resValue.getDataType()) {
+    /**
+     * convert a typed value to resource entity.
+     *
+     * @param dataType the value type, see {@link ResValue.ResType}
+     * @param data     the value data
+     * @return the entity, null if it is a string type value without string
+     */
+    public static ResourceEntity toResourceEntity(short dataType, int data, StringPool stringPool) {
+        long l = data & 0xffffffffL;
+        switch (dataType) {
             case ResValue.ResType.INT_DEC:
             case ResValue.ResType.INT_HEX:
-                resValue.setData(new ResourceEntity(buffer.getInt()));
-                break;
+                return new ResourceEntity(data);
             case ResValue.ResType.STRING:
-                int strRef = buffer.getInt();
-                if (strRef >= 0) {
-                    resValue.setData(new ResourceEntity(stringPool.get(strRef)));
+                if (data >= 0) {
+                    return new ResourceEntity(stringPool.get(data));
                 }
-                break;
+                return null;
             case ResValue.ResType.REFERENCE:
-                long resourceId = Buffers.readUInt(buffer);
-                resValue.setData(new ResourceEntity(resourceId));
-                break;
+                return new ResourceEntity(l);
             case ResValue.ResType.INT_BOOLEAN:
-                resValue.setData(new ResourceEntity(buffer.getInt() != 0));
-                break;
+                return new ResourceEntity(data != 0);
             case ResValue.ResType.NULL:
-                resValue.setData(new ResourceEntity(""));
-                break;
+                return new ResourceEntity("");
             case ResValue.ResType.INT_COLOR_RGB8:
             case ResValue.ResType.INT_COLOR_RGB4:
-                resValue.setData(new ResourceEntity(readRGBs(buffer, 6)));
-                break;
+                return new ResourceEntity(toRGBs(l, 6));
             case ResValue.ResType.INT_COLOR_ARGB8:
             case ResValue.ResType.INT_COLOR_ARGB4:
-                resValue.setData(new ResourceEntity(readRGBs(buffer, 8)));
-                break;
+                return new ResourceEntity(toRGBs(l, 8));
             case ResValue.ResType.DIMENSION:
-                resValue.setData(new ResourceEntity(getDimension(buffer)));
-                break;
+                return new ResourceEntity(getDimension(l));
             case ResValue.ResType.FRACTION:
-                resValue.setData(new ResourceEntity(getFraction(buffer)));
-                break;
+                return new ResourceEntity(getFraction(l));
             default:
-                resValue.setData(new ResourceEntity("{" + resValue.getDataType() + ":"
-                        + Buffers.readUInt(buffer) + "}"));
+                return new ResourceEntity("{" + dataType + ":" + l + "}");
         }
-        return resValue.getData();
     }
 
-    private static String getDimension(ByteBuffer buffer) {
-        long l = Buffers.readUInt(buffer);
+    private static String getDimension(long l) {
         short unit = (short) (l & 0xff);
         String unitStr;
         switch (unit) {
@@ -244,8 +242,7 @@ public class ParseUtils {
         return (l >> 8) + unitStr;
     }
 
-    private static String getFraction(ByteBuffer buffer) {
-        long l = Buffers.readUInt(buffer);
+    private static String getFraction(long l) {
         // The low-order 4 bits of the data value specify the type of the fraction
         short type = (short) (l & 0xf);
         String pstr;
@@ -263,6 +260,57 @@ public class ParseUtils {
         return value + pstr;
     }
 
+    /**
+     * read the config of type chunk, from buffer position. buffer is positioned after the config.
+     */
+    public static ResTableConfig readResTableConfig(ByteBuffer buffer) {
+        long beginPos = buffer.position();
+        ResTableConfig config = new ResTableConfig();
+        long size = Buffers.readUInt(buffer);
+        config.setSize(size);
+        // fields are read as far as the config size, older tables have smaller configs
+        if (size >= 8) {
+            config.setMcc(buffer.getShort());
+            config.setMnc(buffer.getShort());
+        }
+        //read locale
+        if (size >= 12) {
+            config.setLanguage(new String(Buffers.readBytes(buffer, 2)).replace("\0", ""));
+            config.setCountry(new String(Buffers.readBytes(buffer, 2)).replace("\0", ""));
+        } else {
+            config.setLanguage("");
+            config.setCountry("");
+        }
+        if (size >= 16) {
+            config.setOrientation(Buffers.readUByte(buffer));
+            config.setTouchscreen(Buffers.readUByte(buffer));
+            config.setDensity(Buffers.readUShort(buffer));
+        }
+        if (size >= 20) {
+            config.setKeyboard(Buffers.readUByte(buffer));
+            config.setNavigation(Buffers.readUByte(buffer));
+            config.setInputFlags(Buffers.readUByte(buffer));
+            config.setInputPad0(Buffers.readUByte(buffer));
+        }
+        if (size >= 24) {
+            config.setScreenWidth(Buffers.readUShort(buffer));
+            config.setScreenHeight(Buffers.readUShort(buffer));
+        }
+        if (size >= 28) {
+            config.setSdkVersion(Buffers.readUShort(buffer));
+            config.setMinorVersion(Buffers.readUShort(buffer));
+        }
+        if (size >= 32) {
+            config.setScreenLayout(Buffers.readUByte(buffer));
+            config.setUiMode(Buffers.readUByte(buffer));
+            config.setScreenConfigPad1(Buffers.readUByte(buffer));
+            config.setScreenConfigPad2(Buffers.readUByte(buffer));
+        }
+
+        buffer.position((int) (beginPos + size));
+        return config;
+    }
+
     public static void checkChunkType(int expected, int real) {
         if (expected != real) {
             throw new ParserException("Expect chunk type:" + Integer.toHexString(expected)
@@ -289,6 +337,20 @@ public class ParseUtils {
             return str;
         }
 
+        ResourceValueCache valueCache = resourceTable.getValueCache();
+        String cached = valueCache == null ? null : valueCache.get(resourceId, locale);
+        if (cached != null) {
+            return cached;
+        }
+        String result = resolveResourceById(resourceId, resourceTable, locale);
+        if (valueCache != null && result != null) {
+            valueCache.put(resourceId, locale, result);
+        }
+        return result;
+    }
+
+    private static String resolveResourceById(long resourceId, ResourceTable resourceTable, Locale locale) {
+        String str = "resourceId:0x" + Long.toHexString(resourceId);
         short packageId = (short) (resourceId >> 24 & 0xff);
         short typeId = (short) ((resourceId >> 16) & 0xff);
         int entryIndex = (int) (resourceId & 0xffff);
@@ -297,36 +359,58 @@ public class ParseUtils {
             return str;
         }
         TypeSpec typeSpec = resourcePackage.getTypeSpec(typeId);
-        List<Type> types = resourcePackage.getTypes(typeId);
-        if (typeSpec == null || types == null) {
-            return str;
-        }
-        if (!typeSpec.exists(entryIndex)) {
+        if (typeSpec == null || !typeSpec.exists(entryIndex)) {
             return str;
         }
 
         // read from type resource
         ResourceEntry resource = null;
         String ref = null;
-        int currentLevel = -1;
-        for (Type type : types) {
-            ResourceEntry curResource = type.getResourceEntry(entryIndex);
-            if (curResource == null) {
-                continue;
+        TypeChunkIndex typeChunkIndex = resourcePackage.getTypeChunkIndex();
+        if (typeChunkIndex != null) {
+            // only the chunks holding the entry are checked, and types read in order of locale match
+            int[] chunks = typeChunkIndex.findChunks(typeId, entryIndex);
+            if (chunks.length == 0) {
+                return str;
             }
-            // not ResourceMapEntry and resource == 0. some resource entry do not have  effective resource id
-            if (curResource.getValue() != null && curResource.getValue().getResourceId() == 0
-                    && curResource.getValue().getValue() == null) {
-                continue;
+            int[] levels = new int[chunks.length];
+            for (int i = 0; i < chunks.length; i++) {
+                levels[i] = Locales.match(locale, typeChunkIndex.getLocale(chunks[i]));
             }
-            ref = curResource.getKey();
-            int level = Locales.match(locale, type.getLocale());
-            if (level == 2) {
-                resource = curResource;
-                break;
-            } else if (level > currentLevel) {
-                resource = curResource;
-                currentLevel = level;
+            // same choice as reading all types: the first of level 2, otherwise the first of the highest level
+            for (int level : new int[]{2, 3, 1, 0, -1}) {
+                for (int i = 0; i < chunks.length && resource == null; i++) {
+                    if (levels[i] != level) {
+                        continue;
+                    }
+                    ResourceEntry curResource = resourcePackage.getIndexedType(chunks[i])
+                            .getResourceEntry(entryIndex);
+                    if (curResource != null && !isEmptyEntry(curResource)) {
+                        resource = curResource;
+                        ref = curResource.getKey();
+                    }
+                }
+            }
+        } else {
+            List<Type> types = resourcePackage.getTypes(typeId);
+            if (types == null) {
+                return str;
+            }
+            int currentLevel = -1;
+            for (Type type : types) {
+                ResourceEntry curResource = type.getResourceEntry(entryIndex);
+                if (curResource == null || isEmptyEntry(curResource)) {
+                    continue;
+                }
+                ref = curResource.getKey();
+                int level = Locales.match(locale, type.getLocale());
+                if (level == 2) {
+                    resource = curResource;
+                    break;
+                } else if (level > currentLevel) {
+                    resource = curResource;
+                    currentLevel = level;
+                }
             }
         }
         String result;
@@ -338,4 +422,12 @@ public class ParseUtils {
         return result;
     }
 
+    /**
+     * not ResourceMapEntry and resource == 0. some resource entry do not have effective resource id
+     */
+    private static boolean isEmptyEntry(ResourceEntry resourceEntry) {
+        return resourceEntry.getValue() != null && resourceEntry.getValue().getResourceId() == 0
+                && resourceEntry.getValue().getValue() == null;
+    }
+
 }
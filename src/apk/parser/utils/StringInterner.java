@@ -0,0 +1,16 @@
+package apk.parser.utils;
+
+/**
+ * Return a canonical instance for equal strings, so strings repeated across apks are kept only once.
+ * Implementations should be thread-safe when shared by parsers used in different threads.
+ *
+ * @author dongliu
+ */
+public interface StringInterner {
+
+    /**
+     * @param str the string, not null
+     * @return the canonical string equal to str
+     */
+    String intern(String str);
+}
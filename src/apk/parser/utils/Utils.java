@@ -2,28 +2,61 @@ package apk.parser.utils;
 
 
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Iterator;
 
 public class Utils {
 
+    /**
+     * read all data of the stream, and close it.
+     */
     public static byte[] toByteArray(InputStream in) throws IOException {
         try {
-            byte[] buf = new byte[1024*8];
-            try {
-                ByteArrayOutputStream bos = new ByteArrayOutputStream();
-                int len;
-                while ((len = in.read(buf)) != -1) {
-                    bos.write(buf, 0, len);
+            byte[] buf = new byte[1024 * 8];
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            int len;
+            while ((len = in.read(buf)) != -1) {
+                bos.write(buf, 0, len);
+            }
+            return bos.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * read all data of the stream into an array of the known size, and close it.
+     *
+     * @param size the data size, -1 if unknown
+     * @throws IOException if the stream ends before size bytes read, or has more than size bytes.
+     */
+    public static byte[] toByteArray(InputStream in, long size) throws IOException {
+        if (size < 0) {
+            return toByteArray(in);
+        }
+        if (size > Integer.MAX_VALUE) {
+            in.close();
+            throw new IOException("Data too large:" + size);
+        }
+        try {
+            byte[] data = new byte[(int) size];
+            int count = 0;
+            while (count < data.length) {
+                int len = in.read(data, count, data.length - count);
+                if (len == -1) {
+                    throw new EOFException("Expect " + size + " bytes, but got:" + count);
                 }
-                return bos.toByteArray();
-            }catch (Exception e){}
+                count += len;
+            }
+            if (in.read() != -1) {
+                throw new IOException("More data than expected size:" + size);
+            }
+            return data;
         } finally {
             in.close();
         }
-        
-        return null;
     }
 
     /**
@@ -0,0 +1,117 @@
+package apk.parser.utils;
+
+import apk.parser.exception.ParserException;
+import apk.parser.struct.zip.CentralDirectoryEntry;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Random access to the entries of a zip file held in one ByteBuffer, heap or mapped.
+ * The central directory is read once; stored entries are returned as slices of the buffer,
+ * deflated entries are inflated once into a buffer of the uncompressed size.
+ * Reads do not modify the shared buffer, so one archive can be read from multiple threads.
+ *
+ * @author dongliu
+ */
+public class ZipArchive {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    // fixed part of local file header
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private final ByteBuffer buffer;
+    private final Map<String, CentralDirectoryEntry> entries;
+
+    public ZipArchive(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        ZipDirectoryParser parser = new ZipDirectoryParser(this.buffer);
+        parser.parse();
+        this.entries = parser.getEntries();
+    }
+
+    /**
+     * @return the entry, null if not exists
+     */
+    public CentralDirectoryEntry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * all entries, in central directory order
+     */
+    public Collection<CentralDirectoryEntry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * get entry content as buffer. for stored entry, this is a view of the archive buffer, which keeps the
+     * backing array of heap buffers accessible for bulk reads; the content should not be modified.
+     */
+    public ByteBuffer getEntryBuffer(CentralDirectoryEntry entry) {
+        ByteBuffer raw = rawData(entry);
+        switch (entry.getMethod()) {
+            case CentralDirectoryEntry.METHOD_STORED:
+                return raw;
+            case CentralDirectoryEntry.METHOD_DEFLATED:
+                return ByteBuffer.wrap(inflate(entry, raw));
+            default:
+                throw new ParserException("Unsupported compression method:" + entry.getMethod()
+                        + ", entry:" + entry.getName());
+        }
+    }
+
+    /**
+     * get entry content as bytes.
+     */
+    public byte[] getEntryData(CentralDirectoryEntry entry) {
+        ByteBuffer raw = rawData(entry);
+        switch (entry.getMethod()) {
+            case CentralDirectoryEntry.METHOD_STORED:
+                return Buffers.readBytes(raw, raw.remaining());
+            case CentralDirectoryEntry.METHOD_DEFLATED:
+                return inflate(entry, raw);
+            default:
+                throw new ParserException("Unsupported compression method:" + entry.getMethod()
+                        + ", entry:" + entry.getName());
+        }
+    }
+
+    /**
+     * the entry data, as stored in archive. local file header is only used to locate the data,
+     * sizes always come from central directory.
+     */
+    private ByteBuffer rawData(CentralDirectoryEntry entry) {
+        ByteBuffer b = buffer.duplicate();
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        long headerPos = entry.getLocalHeaderOffset();
+        if (headerPos + LOCAL_HEADER_SIZE > b.limit() || b.getInt((int) headerPos) != LOCAL_HEADER_SIGNATURE) {
+            throw new ParserException("Invalid local file header, entry:" + entry.getName());
+        }
+        int nameLen = b.getShort((int) headerPos + 26) & 0xffff;
+        int extraLen = b.getShort((int) headerPos + 28) & 0xffff;
+        long dataPos = headerPos + LOCAL_HEADER_SIZE + nameLen + extraLen;
+        if (dataPos + entry.getCompressedSize() > b.limit()) {
+            throw new ParserException("Entry data out of archive bounds, entry:" + entry.getName());
+        }
+        b.position((int) dataPos);
+        b.limit((int) (dataPos + entry.getCompressedSize()));
+        return b.slice();
+    }
+
+    private byte[] inflate(CentralDirectoryEntry entry, ByteBuffer raw) {
+        if (entry.getUncompressedSize() > Integer.MAX_VALUE) {
+            throw new ParserException("Entry too large:" + entry.getName());
+        }
+        byte[] out = new byte[(int) entry.getUncompressedSize()];
+        try {
+            Inflaters.inflate(raw, out);
+        } catch (ParserException e) {
+            throw new ParserException("Read entry failed:" + entry.getName(), e);
+        }
+        return out;
+    }
+}
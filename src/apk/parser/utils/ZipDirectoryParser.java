@@ -0,0 +1,127 @@
+package apk.parser.utils;
+
+import apk.parser.exception.ParserException;
+import apk.parser.struct.zip.CentralDirectoryEntry;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * parse the end of central directory record and the central directory of a zip file,
+ * without touching the entries' data.
+ * see https://pkware.cachefly.net/webdocs/casestudies/APPNOTE.TXT
+ *
+ * @author dongliu
+ */
+public class ZipDirectoryParser {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+    // fixed part of end of central directory record
+    private static final int EOCD_SIZE = 22;
+    // fixed part of central directory file header
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    // the zip file comment is at most 0xffff bytes
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+
+    /**
+     * zip file is little-endian
+     */
+    private ByteOrder byteOrder = ByteOrder.LITTLE_ENDIAN;
+    private ByteBuffer buffer;
+    // the end of central directory, entries should not cross it
+    private int centralDirectoryEnd;
+
+    private Map<String, CentralDirectoryEntry> entries;
+
+    public ZipDirectoryParser(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+        this.buffer.order(byteOrder);
+    }
+
+    public void parse() {
+        int eocdPos = findEndOfCentralDirectory();
+        buffer.position(eocdPos + 10);
+        int entryCount = Buffers.readUShort(buffer);
+        long centralDirectorySize = Buffers.readUInt(buffer);
+        long centralDirectoryOffset = Buffers.readUInt(buffer);
+        if (entryCount == 0xffff || centralDirectoryOffset == 0xffffffffL) {
+            throw new ParserException("Zip64 archive is not supported");
+        }
+        if (centralDirectoryOffset + centralDirectorySize > eocdPos) {
+            throw new ParserException("Invalid central directory offset:" + centralDirectoryOffset);
+        }
+
+        centralDirectoryEnd = (int) (centralDirectoryOffset + centralDirectorySize);
+        buffer.position((int) centralDirectoryOffset);
+        entries = new LinkedHashMap<String, CentralDirectoryEntry>(entryCount * 4 / 3 + 1);
+        for (int i = 0; i < entryCount; i++) {
+            CentralDirectoryEntry entry = readEntry();
+            // keep the first one if some entries have the same name, as ZipInputStream does
+            if (!entries.containsKey(entry.getName())) {
+                entries.put(entry.getName(), entry);
+            }
+        }
+    }
+
+    /**
+     * the end of central directory record is at the end of file, followed by an optional comment.
+     */
+    private int findEndOfCentralDirectory() {
+        int limit = buffer.limit();
+        if (limit < EOCD_SIZE) {
+            throw new ParserException("Not a zip file, size:" + limit);
+        }
+        int minPos = Math.max(0, limit - EOCD_SIZE - MAX_COMMENT_SIZE);
+        for (int pos = limit - EOCD_SIZE; pos >= minPos; pos--) {
+            if (buffer.getInt(pos) == EOCD_SIGNATURE) {
+                return pos;
+            }
+        }
+        throw new ParserException("End of central directory record not found");
+    }
+
+    private CentralDirectoryEntry readEntry() {
+        int begin = buffer.position();
+        if (centralDirectoryEnd - begin < CENTRAL_DIRECTORY_HEADER_SIZE) {
+            throw new ParserException("Central directory truncated at:" + begin);
+        }
+        int signature = buffer.getInt();
+        if (signature != CENTRAL_DIRECTORY_SIGNATURE) {
+            throw new ParserException("Unexpected central directory signature:"
+                    + Integer.toHexString(signature));
+        }
+        CentralDirectoryEntry entry = new CentralDirectoryEntry();
+        // version made by, version needed to extract
+        Buffers.skip(buffer, 4);
+        entry.setFlags(Buffers.readUShort(buffer));
+        entry.setMethod(Buffers.readUShort(buffer));
+        // last modification time and date
+        Buffers.skip(buffer, 4);
+        entry.setCrc(Buffers.readUInt(buffer));
+        entry.setCompressedSize(Buffers.readUInt(buffer));
+        entry.setUncompressedSize(Buffers.readUInt(buffer));
+        int nameLen = Buffers.readUShort(buffer);
+        int extraLen = Buffers.readUShort(buffer);
+        int commentLen = Buffers.readUShort(buffer);
+        // disk number start, internal and external file attributes
+        Buffers.skip(buffer, 8);
+        entry.setLocalHeaderOffset(Buffers.readUInt(buffer));
+        int end = begin + CENTRAL_DIRECTORY_HEADER_SIZE + nameLen + extraLen + commentLen;
+        if (end > centralDirectoryEnd) {
+            throw new ParserException("Central directory entry truncated at:" + begin);
+        }
+
+        // as ZipFile, names are decoded as utf-8 whether the language encoding flag is set or not
+        entry.setName(new String(Buffers.readBytes(buffer, nameLen), ParseUtils.charsetUTF8));
+
+        buffer.position(end);
+        return entry;
+    }
+
+    public Map<String, CentralDirectoryEntry> getEntries() {
+        return entries;
+    }
+}